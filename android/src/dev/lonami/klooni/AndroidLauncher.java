@@ -26,6 +26,8 @@ import com.badlogic.gdx.backends.android.AndroidApplicationConfiguration;
 
 import java.lang.reflect.Method;
 
+import dev.lonami.klooni.engine.ThreadedHintRunner;
+
 public class AndroidLauncher extends AndroidApplication {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -44,6 +46,6 @@ public class AndroidLauncher extends AndroidApplication {
 
         final AndroidApplicationConfiguration config = new AndroidApplicationConfiguration();
         final AndroidShareChallenge shareChallenge = new AndroidShareChallenge(this);
-        initialize(new Klooni(shareChallenge), config);
+        initialize(new Klooni(shareChallenge, new ThreadedHintRunner()), config);
     }
 }
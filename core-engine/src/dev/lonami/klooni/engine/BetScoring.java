@@ -0,0 +1,124 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Scoring of the casino mode, where reaching higher scores
+// raises the multiplier that will be applied to the bet.
+public class BetScoring extends Scoring {
+
+    //region Members
+
+    private int betAmount;
+    private float currentMultiplier;
+    private int lastMultiplierTier;
+
+    //endregion
+
+    //region Static members
+
+    // Multiplier tiers (score thresholds and their multipliers)
+    public static final int[] MULTIPLIER_THRESHOLDS = {100, 200, 300, 500, 1000};
+    public static final float[] MULTIPLIERS = {1.5f, 2.0f, 3.0f, 5.0f, 10.0f};
+
+    //endregion
+
+    //region Constructor
+
+    public BetScoring(int betAmount) {
+        this.betAmount = betAmount;
+        this.currentMultiplier = 1.0f;
+        this.lastMultiplierTier = -1;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Get the current multiplier tier for a given score
+    public static int getMultiplierTier(int score) {
+        for (int i = MULTIPLIER_THRESHOLDS.length - 1; i >= 0; i--) {
+            if (score >= MULTIPLIER_THRESHOLDS[i]) {
+                return i;
+            }
+        }
+        return -1; // No multiplier yet
+    }
+
+    // Get the multiplier value for a given tier
+    public static float getMultiplierForTier(int tier) {
+        if (tier >= 0 && tier < MULTIPLIERS.length) {
+            return MULTIPLIERS[tier];
+        }
+        return 1.0f; // Base multiplier
+    }
+
+    // Calculate winnings for a bet and score
+    public static int calculateWinnings(int betAmount, int score) {
+        int tier = getMultiplierTier(score);
+        float multiplier = getMultiplierForTier(tier);
+        return (int)(betAmount * multiplier);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Raises the multiplier if the current score reached a new tier, returning true if it did
+    public boolean updateMultiplier() {
+        int newTier = getMultiplierTier(currentScore);
+        if (newTier > lastMultiplierTier) {
+            lastMultiplierTier = newTier;
+            currentMultiplier = getMultiplierForTier(newTier);
+            return true;
+        }
+        return false;
+    }
+
+    public int getBetAmount() {
+        return betAmount;
+    }
+
+    public float getCurrentMultiplier() {
+        return currentMultiplier;
+    }
+
+    public int getMultiplierTier() {
+        return lastMultiplierTier;
+    }
+
+    public int calculateWinnings() {
+        return (int)(betAmount * currentMultiplier);
+    }
+
+    public boolean isWinning() {
+        return currentMultiplier > 1.0f;
+    }
+
+    public int getNetProfit() {
+        return calculateWinnings() - betAmount;
+    }
+
+    // Used when restoring a saved game
+    public void restore(int betAmount, float currentMultiplier, int lastMultiplierTier) {
+        this.betAmount = betAmount;
+        this.currentMultiplier = currentMultiplier;
+        this.lastMultiplierTier = lastMultiplierTier;
+    }
+
+    //endregion
+}
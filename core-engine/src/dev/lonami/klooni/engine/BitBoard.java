@@ -0,0 +1,536 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+
+// Bit-parallel state of a square board, without anything related to drawing.
+//
+// Occupancy is packed one bit per cell in row-major order (bit y * size + x),
+// so a 10x10 board fits in two longs. The color of every cell lives aside on
+// a primitive array, and is only meaningful when the corresponding bit is set.
+//
+// Fit tests, put and clear work a whole piece or line row at a time, with a
+// few shift, AND and OR operations instead of walking the cells one by one.
+// Boards too big for precomputed placements scan up to 64 anchors at once.
+// Per row and column fill counters are kept up to date as well, so finding
+// complete lines only needs to look at the ones the last pieces touched.
+//
+// A Zobrist hash of the occupied cells is kept along, so searches can tell
+// when different move orderings lead to the same board.
+public class BitBoard implements BinSerializable {
+
+    //region Members
+
+    public final int size;
+
+    private final long[] words;
+    private final int[] colors;
+
+    // Zobrist keys per cell, and the XOR of the keys of the filled cells
+    private final long[] keys;
+    private long hash;
+
+    // Shared precomputed placements, null if the board is too big to have them
+    private final PlacementTable table;
+
+    // How many cells are filled on every row and column
+    private final int[] rowFill;
+    private final int[] colFill;
+
+    // Rows and columns touched since the last findComplete, as inclusive ranges.
+    // Only these may have become complete, so the rest don't need to be checked
+    private int dirtyRowMin, dirtyRowMax;
+    private int dirtyColMin, dirtyColMax;
+
+    // Increased every time cells are emptied. While it doesn't change, the
+    // board has only gained cells, so a piece that didn't fit still can't
+    private int removals;
+
+    // Bitsets and lists with the complete rows and columns found by findComplete
+    private final long[] completeRows;
+    private final long[] completeCols;
+    private final int[] completeRowList;
+    private final int[] completeColList;
+    private int completeRowCount;
+    private int completeColCount;
+
+    //endregion
+
+    //region Constructor
+
+    public BitBoard(int size) {
+        this.size = size;
+        words = new long[(size * size + 63) >>> 6];
+        colors = new int[size * size];
+        completeRows = new long[(size + 63) >>> 6];
+        completeCols = new long[(size + 63) >>> 6];
+        completeRowList = new int[size];
+        completeColList = new int[size];
+        rowFill = new int[size];
+        colFill = new int[size];
+        table = PlacementTable.forSize(size);
+        keys = Zobrist.cellKeys(size * size);
+        clear();
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Mask with the lowest 'length' bits set, for 0 < length <= 64
+    private static long lowMask(int length) {
+        return length == 64 ? -1L : (1L << length) - 1;
+    }
+
+    // Returns up to 64 bits starting at the given bit index, which may span two words
+    private long bits(int index, int length) {
+        final int w = index >>> 6;
+        final int b = index & 63;
+        long result = words[w] >>> b;
+        if (b + length > 64)
+            result |= words[w + 1] << (64 - b);
+
+        return result & lowMask(length);
+    }
+
+    // Sets the given bits starting at the given bit index
+    private void or(int index, long bits) {
+        final int w = index >>> 6;
+        final int b = index & 63;
+        words[w] |= bits << b;
+        if (b != 0 && (bits >>> (64 - b)) != 0)
+            words[w + 1] |= bits >>> (64 - b);
+    }
+
+    // Unsets the given bits starting at the given bit index
+    private void andNot(int index, long bits) {
+        final int w = index >>> 6;
+        final int b = index & 63;
+        words[w] &= ~(bits << b);
+        if (b != 0 && (bits >>> (64 - b)) != 0)
+            words[w + 1] &= ~(bits >>> (64 - b));
+    }
+
+    // Returns which anchors x0 + k, for k < length <= 64, fit the shape on row y.
+    // Every filled cell of the shape rules out the anchors that would put it on
+    // a filled cell of the board, for up to 64 anchors at once with one shift
+    private long fittingAnchors(Shape shape, int x0, int y, int length) {
+        long fit = lowMask(length);
+        for (int i = 0, index = y * size + x0; i < shape.cellRows && fit != 0; ++i, index += size)
+            for (long mask = shape.rowMasks[i]; mask != 0; mask &= mask - 1)
+                fit &= ~bits(index + Long.numberOfTrailingZeros(mask), length);
+
+        return fit;
+    }
+
+    private static boolean get(long[] set, int i) {
+        return (set[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void markDirty(int x, int y, int cols, int rows) {
+        dirtyRowMin = Math.min(dirtyRowMin, y);
+        dirtyRowMax = Math.max(dirtyRowMax, y + rows - 1);
+        dirtyColMin = Math.min(dirtyColMin, x);
+        dirtyColMax = Math.max(dirtyColMax, x + cols - 1);
+    }
+
+    private void resetDirty() {
+        dirtyRowMin = dirtyColMin = size;
+        dirtyRowMax = dirtyColMax = -1;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public boolean isEmpty(int x, int y) {
+        final int index = y * size + x;
+        return (words[index >>> 6] & (1L << index)) == 0;
+    }
+
+    // Amount of filled cells on the given row or column
+    public int getRowFill(int y) {
+        return rowFill[y];
+    }
+
+    public int getColumnFill(int x) {
+        return colFill[x];
+    }
+
+    // Color index of the given cell, negative if it is empty
+    public int getColor(int x, int y) {
+        return colors[y * size + x];
+    }
+
+    // True if the piece would not leave the board when put at the given coordinates
+    public boolean inBounds(Shape shape, int x, int y) {
+        return x >= 0 && y >= 0 && x + shape.cellCols <= size && y + shape.cellRows <= size;
+    }
+
+    // This only tests for the piece on the given coordinates, not the whole board
+    public boolean canPut(Shape shape, int x, int y) {
+        if (table != null) {
+            final int placement = table.placement(shape, x, y);
+            return placement >= 0 && table.fits(words, placement);
+        }
+
+        if (!inBounds(shape, x, y))
+            return false;
+
+        for (int i = 0, index = y * size + x; i < shape.cellRows; ++i, index += size)
+            if ((bits(index, shape.cellCols) & shape.rowMasks[i]) != 0)
+                return false;
+
+        return true;
+    }
+
+    // Tests every anchor for the given piece, true if any of them fits
+    public boolean canPutAnywhere(Shape shape) {
+        if (table != null) {
+            for (int p = table.first(shape), end = table.end(shape); p < end; ++p)
+                if (table.fits(words, p))
+                    return true;
+
+            return false;
+        }
+
+        final int anchorCols = size - shape.cellCols + 1;
+        for (int y = 0; y + shape.cellRows <= size; ++y)
+            for (int x0 = 0; x0 < anchorCols; x0 += 64)
+                if (fittingAnchors(shape, x0, y, Math.min(64, anchorCols - x0)) != 0)
+                    return true;
+
+        return false;
+    }
+
+    // Returns the first anchor (as y * size + x) where the piece fits, or -1 if none does
+    public int findPlacement(Shape shape) {
+        if (table != null) {
+            for (int p = table.first(shape), end = table.end(shape); p < end; ++p)
+                if (table.fits(words, p))
+                    return table.anchor(shape, p);
+
+            return -1;
+        }
+
+        final int anchorCols = size - shape.cellCols + 1;
+        for (int y = 0; y + shape.cellRows <= size; ++y) {
+            for (int x0 = 0; x0 < anchorCols; x0 += 64) {
+                final long fit = fittingAnchors(shape, x0, y, Math.min(64, anchorCols - x0));
+                if (fit != 0)
+                    return y * size + x0 + Long.numberOfTrailingZeros(fit);
+            }
+        }
+        return -1;
+    }
+
+    // Stores every anchor (as y * size + x) where the piece fits into the given
+    // array, which must have room for size * size items, and returns how many
+    public int legalPlacements(Shape shape, int[] anchors) {
+        int count = 0;
+        if (table != null) {
+            for (int p = table.first(shape), end = table.end(shape); p < end; ++p)
+                if (table.fits(words, p))
+                    anchors[count++] = table.anchor(shape, p);
+
+            return count;
+        }
+
+        final int anchorCols = size - shape.cellCols + 1;
+        for (int y = 0; y + shape.cellRows <= size; ++y) {
+            for (int x0 = 0; x0 < anchorCols; x0 += 64) {
+                long fit = fittingAnchors(shape, x0, y, Math.min(64, anchorCols - x0));
+                for (; fit != 0; fit &= fit - 1)
+                    anchors[count++] = y * size + x0 + Long.numberOfTrailingZeros(fit);
+            }
+        }
+        return count;
+    }
+
+    // How many anchors on row y the piece fits at, testing 64 of them at once
+    public int countPlacements(Shape shape, int y) {
+        if (y + shape.cellRows > size)
+            return 0;
+
+        final int anchorCols = size - shape.cellCols + 1;
+        int count = 0;
+        for (int x0 = 0; x0 < anchorCols; x0 += 64)
+            count += Long.bitCount(fittingAnchors(shape, x0, y, Math.min(64, anchorCols - x0)));
+
+        return count;
+    }
+
+    // How many lines putting the shape at the given anchor would complete,
+    // without putting it. The shape must fit there for this to be meaningful
+    public int countCompletedBy(Shape shape, int x, int y) {
+        int count = 0;
+        for (int i = 0; i < shape.cellRows; ++i)
+            if (rowFill[y + i] + Long.bitCount(shape.rowMasks[i]) == size)
+                count++;
+
+        for (int j = 0; j < shape.cellCols; ++j) {
+            int filled = 0;
+            for (int i = 0; i < shape.cellRows; ++i)
+                if ((shape.rowMasks[i] & (1L << j)) != 0)
+                    filled++;
+
+            if (colFill[x + j] + filled == size)
+                count++;
+        }
+        return count;
+    }
+
+    // Puts the piece without checking whether it fits, which is up to the caller
+    public void put(Shape shape, int x, int y) {
+        for (int i = 0, index = y * size + x; i < shape.cellRows; ++i, index += size) {
+            final long mask = shape.rowMasks[i];
+            or(index, mask);
+
+            rowFill[y + i] += Long.bitCount(mask);
+            for (int j = 0; j < shape.cellCols; ++j) {
+                if ((mask & (1L << j)) != 0) {
+                    colors[index + j] = shape.colorIndex;
+                    colFill[x + j]++;
+                    hash ^= keys[index + j];
+                }
+            }
+        }
+        markDirty(x, y, shape.cellCols, shape.cellRows);
+    }
+
+    // Sets a single cell to the given color, or empties it if negative
+    public void set(int x, int y, int colorIndex) {
+        final int index = y * size + x;
+        final boolean wasEmpty = isEmpty(x, y);
+        colors[index] = colorIndex < 0 ? -1 : colorIndex;
+        if (colorIndex < 0) {
+            words[index >>> 6] &= ~(1L << index);
+            if (!wasEmpty) {
+                hash ^= keys[index];
+                rowFill[y]--;
+                colFill[x]--;
+                removals++;
+            }
+        } else {
+            words[index >>> 6] |= 1L << index;
+            if (wasEmpty) {
+                hash ^= keys[index];
+                rowFill[y]++;
+                colFill[x]++;
+                markDirty(x, y, 1, 1);
+            }
+        }
+    }
+
+    // Finds which rows and columns are complete, to be later queried with
+    // isRowComplete and isColumnComplete, and returns how many there are.
+    //
+    // Rows and columns must be found all at once, or clearing the rows first
+    // could leave a column that was also complete unnoticed (or vice versa).
+    // Only the rows and columns that got new cells since the last call can
+    // have become complete, and the fill counters tell which ones are.
+    public int findComplete() {
+        for (int k = 0; k < completeRowCount; ++k)
+            completeRows[completeRowList[k] >>> 6] = 0L;
+        for (int k = 0; k < completeColCount; ++k)
+            completeCols[completeColList[k] >>> 6] = 0L;
+
+        completeRowCount = completeColCount = 0;
+        for (int i = dirtyRowMin; i <= dirtyRowMax; ++i) {
+            if (rowFill[i] == size) {
+                completeRows[i >>> 6] |= 1L << i;
+                completeRowList[completeRowCount++] = i;
+            }
+        }
+        for (int j = dirtyColMin; j <= dirtyColMax; ++j) {
+            if (colFill[j] == size) {
+                completeCols[j >>> 6] |= 1L << j;
+                completeColList[completeColCount++] = j;
+            }
+        }
+        resetDirty();
+
+        return completeRowCount + completeColCount;
+    }
+
+    public boolean isRowComplete(int y) {
+        return get(completeRows, y);
+    }
+
+    public boolean isColumnComplete(int x) {
+        return get(completeCols, x);
+    }
+
+    // The complete rows and columns are also available as lists,
+    // so they can be walked in O(cleared lines) rather than O(size)
+    public int getCompleteRowCount() {
+        return completeRowCount;
+    }
+
+    public int getCompleteRow(int k) {
+        return completeRowList[k];
+    }
+
+    public int getCompleteColumnCount() {
+        return completeColCount;
+    }
+
+    public int getCompleteColumn(int k) {
+        return completeColList[k];
+    }
+
+    // Empties the rows and columns that were found by the last call to findComplete.
+    // Every cleared cell updates the counters of the line crossing it exactly once.
+    public void clearComplete() {
+        if (completeRowCount + completeColCount != 0)
+            removals++;
+
+        for (int k = 0; k < completeRowCount; ++k) {
+            final int i = completeRowList[k];
+            for (int j = 0, index = i * size; j < size; j += 64, index += 64)
+                andNot(index, lowMask(Math.min(64, size - j)));
+
+            Arrays.fill(colors, i * size, (i + 1) * size, -1);
+            for (int index = i * size; index < (i + 1) * size; ++index)
+                hash ^= keys[index];
+
+            rowFill[i] = 0;
+            for (int j = 0; j < size; ++j)
+                colFill[j]--;
+        }
+
+        for (int k = 0; k < completeColCount; ++k) {
+            final int j = completeColList[k];
+            for (int i = 0, index = j; i < size; ++i, index += size) {
+                if (colors[index] >= 0) {
+                    colors[index] = -1;
+                    hash ^= keys[index];
+                    rowFill[i]--;
+                }
+                words[index >>> 6] &= ~(1L << index);
+            }
+            colFill[j] = 0;
+        }
+    }
+
+    // Total amount of filled cells on the board
+    public int getFilledCount() {
+        int filled = 0;
+        for (int i = 0; i < size; ++i)
+            filled += rowFill[i];
+
+        return filled;
+    }
+
+    // Makes this board an exact copy of the other, which must have the same size.
+    // Nothing is allocated, so search code can reuse the same boards over and over
+    public void copyFrom(BitBoard other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.rowFill, 0, rowFill, 0, size);
+        System.arraycopy(other.colFill, 0, colFill, 0, size);
+        dirtyRowMin = other.dirtyRowMin;
+        dirtyRowMax = other.dirtyRowMax;
+        dirtyColMin = other.dirtyColMin;
+        dirtyColMax = other.dirtyColMax;
+        removals = other.removals;
+        hash = other.hash;
+
+        Arrays.fill(completeRows, 0L);
+        Arrays.fill(completeCols, 0L);
+        completeRowCount = completeColCount = 0;
+    }
+
+    // The packed cells, where bit (i & 63) of word (i >>> 6) is the cell i = y * size + x
+    int getWordCount() {
+        return words.length;
+    }
+
+    long getWord(int w) {
+        return words[w];
+    }
+
+    // Filled cells of the given row, bit x being the cell on column x, for size <= 64
+    long getRow(int y) {
+        return bits(y * size, size);
+    }
+
+    // Zobrist hash of the filled cells, equal for boards with the same cells filled
+    public long getHash() {
+        return hash;
+    }
+
+    public int getRemovalCount() {
+        return removals;
+    }
+
+    // Empties the whole board
+    public void clear() {
+        removals++;
+        Arrays.fill(words, 0L);
+        Arrays.fill(colors, -1);
+        Arrays.fill(rowFill, 0);
+        Arrays.fill(colFill, 0);
+        Arrays.fill(completeRows, 0L);
+        Arrays.fill(completeCols, 0L);
+        completeRowCount = completeColCount = 0;
+        hash = 0;
+        resetDirty();
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // Cell count, cell colors in row-major order
+        out.writeInt(size);
+        for (int i = 0; i < colors.length; ++i)
+            out.writeInt(colors[i]);
+    }
+
+    @Override
+    public void read(DataInputStream in) throws IOException {
+        // If the saved cell count does not match the current cell count,
+        // then an IOException is thrown since the data saved was invalid
+        if (readSize(in) != size)
+            throw new IOException("Invalid cellCount saved.");
+
+        clear();
+        for (int i = 0; i < size; ++i)
+            for (int j = 0; j < size; ++j)
+                set(j, i, in.readInt());
+    }
+
+    // Reads just the cell count a board was written with, so it can be built with that size
+    public static int readSize(DataInputStream in) throws IOException {
+        final int result = in.readInt();
+        if (result <= 0)
+            throw new IOException("Invalid cellCount saved.");
+        return result;
+    }
+
+    //endregion
+}
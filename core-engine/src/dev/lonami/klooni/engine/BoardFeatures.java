@@ -0,0 +1,522 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Tells how fragmented the empty space of a board is, which is what
+// evaluators and difficulty tuning care about: how many empty regions there
+// are and how big, how many single cell holes only a 1x1 piece can fill, how
+// many places every shape fits at, and the biggest square and line that do.
+//
+// The features are kept current incrementally. Every update compares the
+// board with the cells seen on the last one, 64 cells at a time, and only
+// recomputes what the changed cells can affect. Searches start around them
+// and stop as soon as they can tell which regions were split or joined, so
+// putting a piece on a big region doesn't flood all of it, and placements
+// are only counted again on the rows from which a shape could cover one of
+// the changed cells. Queries are then free.
+public class BoardFeatures {
+
+    //region Members
+
+    private final BitBoard board;
+    private final int size;
+
+    // Cells of the board as of the last update, and their hash
+    private final long[] seen;
+    private long seenHash;
+
+    // Empty region every cell belongs to, or -1 if it's filled
+    private final int[] labels;
+    private final int[] regionSizes;
+    private int regionCount;
+    private final int[] histogram = new int[HISTOGRAM_SIZE];
+
+    // Region labels not in use, and those of the regions touched by this update.
+    // The latter can't be reused until the update is over, or cells that still
+    // have them couldn't be told apart from those of the new regions
+    private final int[] freeLabels;
+    private int freeCount;
+    private final int[] touchedLabels;
+    private int touchedCount;
+
+    // Update on which every region was touched, and every cell reached
+    private final int[] regionStamps;
+    private final int[] cellStamps;
+    private int stamp;
+
+    // Cells next to a change, from which searches start
+    private final int[] seeds;
+    private int seedCount;
+
+    // Searches grow all at once, one cell each in turns. Every search keeps the cells
+    // it reached chained through 'next', from 'heads' to 'tails', and will look at the
+    // neighbours of 'pending' next. Searches that meet are joined, and a group with
+    // nothing pending is a whole region on its own
+    private final int[] owners;
+    private final int[] next;
+    private final int[] heads, tails, pending;
+    private final int[] parents, active, groupLabels;
+    private int searchCount;
+    private int openGroups;
+
+    private final int[] stack;
+
+    // How many anchors every shape fits at, per row and in total
+    private final int[][] rowPlacements;
+    private final int[] placements;
+
+    // Rows that changed on this update, and how many did up to every row
+    private final boolean[] changedRows;
+    private final int[] changedBefore;
+
+    // Empty cells of every row, bit x being column x, if the board is up to 64 wide.
+    // Then a shape is tested on every anchor of a row at once, with a shift per cell
+    private final long[] emptyRows;
+
+    //endregion
+
+    //region Static members
+
+    // Regions of this many cells or more are counted together on the histogram
+    public static final int HISTOGRAM_SIZE = 10;
+
+    //endregion
+
+    //region Constructor
+
+    public BoardFeatures(final BitBoard board) {
+        this.board = board;
+        size = board.size;
+
+        final int cells = size * size;
+        seen = new long[board.getWordCount()];
+        labels = new int[cells];
+        regionSizes = new int[cells + 1];
+        freeLabels = new int[cells + 1];
+        touchedLabels = new int[cells + 1];
+        regionStamps = new int[cells + 1];
+        cellStamps = new int[cells];
+        seeds = new int[5 * cells];
+        owners = new int[cells];
+        next = new int[cells];
+        heads = new int[cells];
+        tails = new int[cells];
+        pending = new int[cells];
+        parents = new int[cells];
+        active = new int[cells];
+        groupLabels = new int[cells];
+        stack = new int[cells];
+        rowPlacements = new int[Shape.SHAPE_COUNT][size];
+        placements = new int[Shape.SHAPE_COUNT];
+        changedRows = new boolean[size];
+        changedBefore = new int[size + 1];
+        emptyRows = size <= 64 ? new long[size] : null;
+
+        // Start as if the whole board was filled, so the first update finds every empty cell
+        for (int i = 0; i < cells; ++i) {
+            labels[i] = -1;
+            seen[i >>> 6] |= 1L << i;
+        }
+        for (int i = cells; i-- != 0; )
+            freeLabels[freeCount++] = i;
+
+        seenHash = ~board.getHash();
+        update();
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static int bucket(int cells) {
+        return Math.min(cells, HISTOGRAM_SIZE) - 1;
+    }
+
+    // Whether the cell is empty, once the seen cells are up to date
+    private boolean isEmpty(int index) {
+        return (seen[index >>> 6] & (1L << index)) == 0;
+    }
+
+    // Stops counting the given region, which changed on this update
+    private void touch(int label) {
+        if (label >= 0 && regionStamps[label] != stamp) {
+            regionStamps[label] = stamp;
+            histogram[bucket(regionSizes[label])]--;
+            regionCount--;
+            touchedLabels[touchedCount++] = label;
+        }
+    }
+
+    private void addRegion(int label, int cells) {
+        regionSizes[label] = cells;
+        histogram[bucket(cells)]++;
+        regionCount++;
+    }
+
+    // Calls seed with every neighbour of the given cell
+    private void seedNeighbours(int index, boolean touch) {
+        final int x = index % size, y = index / size;
+        if (x > 0)
+            seed(index - 1, touch);
+        if (x < size - 1)
+            seed(index + 1, touch);
+        if (y > 0)
+            seed(index - size, touch);
+        if (y < size - 1)
+            seed(index + size, touch);
+    }
+
+    // A search should start from the given cell if it's empty, and its region
+    // is touched if it will be joined with others through a new empty cell
+    private void seed(int index, boolean touch) {
+        seeds[seedCount++] = index;
+        if (touch)
+            touch(labels[index]);
+    }
+
+    private int find(int search) {
+        while (parents[search] != search)
+            search = parents[search] = parents[parents[search]];
+
+        return search;
+    }
+
+    private void join(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a != b) {
+            if (active[a] != 0 && active[b] != 0)
+                openGroups--;
+
+            parents[b] = a;
+            active[a] += active[b];
+        }
+    }
+
+    // Marks the cell as reached by the given search, adding it to its chain
+    private void reach(int index, int search) {
+        cellStamps[index] = stamp;
+        owners[index] = search;
+        next[index] = -1;
+        next[tails[search]] = index;
+        tails[search] = index;
+        if (pending[search] < 0)
+            pending[search] = index;
+
+        touch(labels[index]);
+    }
+
+    private void startSearch(int index) {
+        final int search = searchCount++;
+        parents[search] = search;
+        active[search] = 1;
+        groupLabels[search] = -1;
+        heads[search] = tails[search] = pending[search] = index;
+        openGroups++;
+
+        cellStamps[index] = stamp;
+        owners[index] = search;
+        next[index] = -1;
+        touch(labels[index]);
+    }
+
+    // Looks at the neighbours of the next pending cell of the given search
+    private void step(int search) {
+        final int index = pending[search];
+        final int x = index % size, y = index / size;
+        if (x > 0)
+            visit(index - 1, search);
+        if (x < size - 1)
+            visit(index + 1, search);
+        if (y > 0)
+            visit(index - size, search);
+        if (y < size - 1)
+            visit(index + size, search);
+
+        pending[search] = next[index];
+        if (pending[search] < 0) {
+            final int group = find(search);
+            if (--active[group] == 0)
+                openGroups--;
+        }
+    }
+
+    private void visit(int index, int search) {
+        if (cellStamps[index] == stamp) {
+            if (owners[index] != search)
+                join(search, owners[index]);
+        }
+        else if (isEmpty(index))
+            reach(index, search);
+    }
+
+    // Labels every cell reached by the given search, returning how many there are
+    private int label(int search, int label) {
+        int cells = 0;
+        for (int index = heads[search]; index >= 0; index = next[index]) {
+            labels[index] = label;
+            cells++;
+        }
+        return cells;
+    }
+
+    // Gives the cells of the given touched regions that weren't reached the label of
+    // the region they are now part of, starting from the cells reached by the search
+    private void relabel(int search, int label) {
+        int top = 0;
+        for (int index = heads[search]; index >= 0; index = next[index])
+            stack[top++] = index;
+
+        while (top != 0) {
+            final int index = stack[--top];
+            final int x = index % size, y = index / size;
+            if (x > 0 && relabels(index - 1, label))
+                stack[top++] = index - 1;
+            if (x < size - 1 && relabels(index + 1, label))
+                stack[top++] = index + 1;
+            if (y > 0 && relabels(index - size, label))
+                stack[top++] = index - size;
+            if (y < size - 1 && relabels(index + size, label))
+                stack[top++] = index + size;
+        }
+    }
+
+    private boolean relabels(int index, int label) {
+        final int old = labels[index];
+        if (old < 0 || old == label || regionStamps[old] != stamp || cellStamps[index] == stamp)
+            return false;
+
+        cellStamps[index] = stamp;
+        labels[index] = label;
+        return true;
+    }
+
+    // Finds out the regions again after the given cells were filled and emptied
+    private void updateRegions(int filled, int emptied) {
+        searchCount = openGroups = 0;
+        for (int i = 0; i < seedCount; ++i)
+            if (cellStamps[seeds[i]] != stamp && isEmpty(seeds[i]))
+                startSearch(seeds[i]);
+
+        // Once a single group is left open, whatever it didn't reach yet is part of it
+        while (openGroups > 1)
+            for (int search = 0; search < searchCount; ++search)
+                if (pending[search] >= 0)
+                    step(search);
+
+        // Cells on touched regions that weren't filled are still empty, the emptied
+        // ones were added, and each of them is either on a closed group or the open one
+        int open = emptied - filled;
+        int survivor = -1;
+        for (int i = 0; i < touchedCount; ++i) {
+            final int label = touchedLabels[i];
+            open += regionSizes[label];
+            if (survivor < 0 || regionSizes[label] > regionSizes[survivor])
+                survivor = label;
+        }
+
+        // No more joins from now on, so every search can be told its group once
+        for (int search = 0; search < searchCount; ++search)
+            parents[search] = find(search);
+
+        int openSearch = -1;
+        for (int search = 0; search < searchCount; ++search) {
+            final int group = parents[search];
+            if (active[group] != 0) {
+                openSearch = search;
+                continue;
+            }
+
+            if (groupLabels[group] < 0) {
+                groupLabels[group] = freeLabels[--freeCount];
+                regionSizes[groupLabels[group]] = 0;
+            }
+            final int cells = label(search, groupLabels[group]);
+            regionSizes[groupLabels[group]] += cells;
+            open -= cells;
+        }
+
+        // Closed groups are whole regions, counted once all their searches were labeled
+        for (int search = 0; search < searchCount; ++search) {
+            final int group = parents[search];
+            if (active[group] == 0 && groupLabels[group] >= 0) {
+                final int label = groupLabels[group];
+                groupLabels[group] = -1;
+                addRegion(label, regionSizes[label]);
+            }
+        }
+
+        // The open group keeps the label of the biggest region it took,
+        // so only the cells of the smaller ones need to be labeled again
+        if (openSearch >= 0) {
+            if (survivor < 0) {
+                survivor = freeLabels[--freeCount];
+            } else {
+                for (int i = 0; i < touchedCount; ++i) {
+                    if (touchedLabels[i] == survivor) {
+                        touchedLabels[i] = touchedLabels[--touchedCount];
+                        break;
+                    }
+                }
+            }
+
+            for (int search = 0; search < searchCount; ++search) {
+                if (active[parents[search]] != 0) {
+                    label(search, survivor);
+                    relabel(search, survivor);
+                }
+            }
+            addRegion(survivor, open);
+        }
+
+        while (touchedCount != 0)
+            freeLabels[freeCount++] = touchedLabels[--touchedCount];
+    }
+
+    // Amount of anchors on row y the shape fits at, using the empty rows
+    private int countPlacements(Shape shape, int y) {
+        final int anchorCols = size - shape.cellCols + 1;
+        if (anchorCols <= 0)
+            return 0;
+
+        long fit = anchorCols == 64 ? -1L : (1L << anchorCols) - 1;
+        for (int i = 0; i < shape.cellRows && fit != 0; ++i)
+            for (long mask = shape.rowMasks[i]; mask != 0; mask &= mask - 1)
+                fit &= emptyRows[y + i] >>> Long.numberOfTrailingZeros(mask);
+
+        return Long.bitCount(fit);
+    }
+
+    // Counts the placements again on the anchor rows that cover a changed row
+    private void recountPlacements() {
+        for (int y = 0; y < size; ++y) {
+            changedBefore[y + 1] = changedBefore[y] + (changedRows[y] ? 1 : 0);
+            if (changedRows[y] && emptyRows != null)
+                emptyRows[y] = ~board.getRow(y) & (size == 64 ? -1L : (1L << size) - 1);
+
+            changedRows[y] = false;
+        }
+
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            final Shape shape = Shape.get(s);
+            final int[] rows = rowPlacements[s];
+            for (int y = 0; y + shape.cellRows <= size; ++y) {
+                if (changedBefore[y + shape.cellRows] != changedBefore[y]) {
+                    final int count = emptyRows != null
+                            ? countPlacements(shape, y) : board.countPlacements(shape, y);
+                    placements[s] += count - rows[y];
+                    rows[y] = count;
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Brings the features up to date with the board, doing nothing if it didn't change
+    public void update() {
+        // Any change to the cells changes the hash, so boards that were
+        // not touched since the last update don't need to be compared
+        if (board.getHash() == seenHash)
+            return;
+
+        seenHash = board.getHash();
+        stamp++;
+        seedCount = 0;
+        int filled = 0, emptied = 0;
+
+        for (int w = 0; w < seen.length; ++w) {
+            final long now = board.getWord(w);
+            long diff = now ^ seen[w];
+            if (diff == 0)
+                continue;
+
+            seen[w] = now;
+            for (; diff != 0; diff &= diff - 1) {
+                final int bit = Long.numberOfTrailingZeros(diff);
+                final int index = (w << 6) + bit;
+                changedRows[index / size] = true;
+                if ((now & (1L << bit)) != 0) {
+                    // The region this cell was on may have been split in several
+                    touch(labels[index]);
+                    labels[index] = -1;
+                    seedNeighbours(index, false);
+                    filled++;
+                } else {
+                    // The regions around this cell are now one
+                    seeds[seedCount++] = index;
+                    seedNeighbours(index, true);
+                    emptied++;
+                }
+            }
+        }
+        if (filled + emptied == 0)
+            return;
+
+        updateRegions(filled, emptied);
+        recountPlacements();
+    }
+
+    // Amount of empty regions, with cells connected horizontally or vertically
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    // Amount of regions with exactly the given cells, or at least HISTOGRAM_SIZE of them
+    public int getRegionsOfSize(int cells) {
+        return histogram[bucket(cells)];
+    }
+
+    // Empty cells surrounded by filled cells or the edges of the board
+    public int getHoleCount() {
+        return histogram[0];
+    }
+
+    // Region the given cell is on, equal for cells on the same one, or -1 if it's filled
+    public int getRegion(int x, int y) {
+        return labels[y * size + x];
+    }
+
+    // Amount of anchors the given shape fits at
+    public int getPlacementCount(Shape shape) {
+        return placements[shape.shapeIndex];
+    }
+
+    // Side of the biggest square piece that still fits, or 0 if the board is full
+    public int getLargestSquare() {
+        for (int colorIndex = 2; colorIndex >= 0; --colorIndex)
+            if (placements[Shape.shapeIndex(colorIndex, 0)] != 0)
+                return colorIndex + 1;
+
+        return 0;
+    }
+
+    // Length of the longest line piece that still fits either way, or 0 if the board is full
+    public int getLongestLine() {
+        for (int colorIndex = 6; colorIndex >= 3; --colorIndex)
+            if (placements[Shape.shapeIndex(colorIndex, 0)] != 0
+                    || placements[Shape.shapeIndex(colorIndex, 1)] != 0)
+                return colorIndex - 1;
+
+        return placements[Shape.shapeIndex(0, 0)] != 0 ? 1 : 0;
+    }
+
+    //endregion
+}
@@ -0,0 +1,116 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// An immutable copy of the cells of a board, which can be restored later on.
+//
+// Snapshots are persistent: a snapshot taken from a previous one shares all
+// the rows that didn't change since, so a long history of a board only costs
+// the rows every move touched, rather than a full copy per move. Because they
+// never change, snapshots can also be kept around by search code to branch
+// from a position, or handed to another thread.
+public class BoardSnapshot {
+
+    //region Members
+
+    public final int size;
+
+    // Colors of every row, -1 for empty cells. Rows are never modified once
+    // created, and the same row may be shared by many snapshots
+    private final byte[][] rows;
+
+    //endregion
+
+    //region Constructor
+
+    private BoardSnapshot(int size, byte[][] rows) {
+        this.size = size;
+        this.rows = rows;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    public static BoardSnapshot take(BitBoard board) {
+        return take(board, null);
+    }
+
+    // Takes a snapshot of the board, sharing the rows that are still the same as
+    // on the previous snapshot, which may be null or of a board of another size
+    public static BoardSnapshot take(BitBoard board, BoardSnapshot previous) {
+        final int size = board.size;
+        if (previous != null && previous.size != size)
+            previous = null;
+
+        final byte[][] rows = new byte[size][];
+        for (int y = 0; y < size; ++y) {
+            if (previous != null && sameRow(board, y, previous.rows[y])) {
+                rows[y] = previous.rows[y];
+            } else {
+                final byte[] row = new byte[size];
+                for (int x = 0; x < size; ++x)
+                    row[x] = (byte) board.getColor(x, y);
+
+                rows[y] = row;
+            }
+        }
+        return new BoardSnapshot(size, rows);
+    }
+
+    private static boolean sameRow(BitBoard board, int y, byte[] row) {
+        for (int x = 0; x < row.length; ++x)
+            if (row[x] != board.getColor(x, y))
+                return false;
+
+        return true;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Makes the board have the cells of this snapshot, which must be of the same size
+    public void restore(BitBoard board) {
+        board.clear();
+        for (int y = 0; y < size; ++y) {
+            final byte[] row = rows[y];
+            for (int x = 0; x < size; ++x)
+                if (row[x] >= 0)
+                    board.set(x, y, row[x]);
+        }
+    }
+
+    // Color of the cell, or -1 if it's empty
+    public int getColor(int x, int y) {
+        return rows[y][x];
+    }
+
+    // How many rows this snapshot has in common with the other
+    public int countSharedRows(BoardSnapshot other) {
+        int count = 0;
+        if (other.size == size)
+            for (int y = 0; y < size; ++y)
+                if (rows[y] == other.rows[y])
+                    count++;
+
+        return count;
+    }
+
+    //endregion
+}
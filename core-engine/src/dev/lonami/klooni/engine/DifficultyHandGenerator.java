@@ -0,0 +1,166 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// Deals the hand that best matches a difficulty level out of many random ones.
+//
+// Candidate hands are ranked by how many anchors their shapes fit on, relative
+// to how many they could take on an empty board: the less room they have, the
+// harder they are. Difficulty 0 picks the roomiest candidate and 1 the tightest.
+// Among those closest to the target, the first one that can be put in full is
+// dealt, so the difficulty never makes the game unwinnable by itself.
+//
+// Candidates are sampled until there's enough of them or the budget runs out.
+// If not even two could be ranked in time, the first random one is dealt.
+public class DifficultyHandGenerator extends HandGenerator {
+
+    //region Members
+
+    private final HandSolver solver;
+    private final long budgetNanos;
+
+    // Candidate hands, how much room each has and their ranking
+    private final Hand[] candidates;
+    private final float[] room;
+    private final int[] ranking;
+
+    private final int[] anchors;
+
+    // The board with any complete line cleared, as it will be once the hand is dealt
+    private final BitBoard cleared;
+
+    private float difficulty;
+
+    //endregion
+
+    //region Constructor
+
+    public DifficultyHandGenerator(int boardSize, int handCount, int candidateCount,
+                                   final Clock clock, long budgetNanos) {
+        super(clock);
+        solver = new HandSolver(boardSize, handCount, clock);
+        this.budgetNanos = budgetNanos;
+
+        candidates = new Hand[candidateCount];
+        for (int i = 0; i < candidateCount; ++i)
+            candidates[i] = new Hand(handCount);
+
+        room = new float[candidateCount];
+        ranking = new int[candidateCount];
+        anchors = new int[boardSize * boardSize];
+        cleared = new BitBoard(boardSize);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Average fraction of its anchors on which every shape of the hand fits
+    private float calculateRoom(BitBoard board, Hand hand) {
+        float result = 0f;
+        for (int i = 0; i < hand.getCount(); ++i) {
+            final Shape shape = hand.get(i);
+            final int anchorCount = (board.size - shape.cellCols + 1) * (board.size - shape.cellRows + 1);
+            if (anchorCount > 0)
+                result += (float) board.legalPlacements(shape, anchors) / anchorCount;
+        }
+        return result / hand.getCount();
+    }
+
+    private static void copy(Hand from, Hand to) {
+        for (int i = 0; i < from.getCount(); ++i)
+            to.set(i, from.get(i));
+    }
+
+    //endregion
+
+    //region Protected methods
+
+    @Override
+    protected void generate(BitBoard board, Hand hand, Random random) {
+        final long deadline = clock.nanoTime() + budgetNanos;
+        cleared.copyFrom(board);
+        cleared.findComplete();
+        cleared.clearComplete();
+
+        int count = 0;
+        while (count < candidates.length && (count < 2 || clock.nanoTime() < deadline)) {
+            candidates[count].takeMore(random);
+            room[count] = calculateRoom(cleared, candidates[count]);
+            addCandidate();
+
+            // Insertion sort, from the most room to the least
+            int i = count++;
+            while (i > 0 && room[ranking[i - 1]] < room[count - 1]) {
+                ranking[i] = ranking[i - 1];
+                i--;
+            }
+            ranking[i] = count - 1;
+
+            if (count == 1 && clock.nanoTime() >= deadline) {
+                copy(candidates[0], hand);
+                addFallback();
+                return;
+            }
+        }
+
+        // Walk outwards from the target rank until a hand can be put in full
+        final int target = Math.round(difficulty * (count - 1));
+        for (int step = 0; step < 2 * count; ++step) {
+            final int rank = (step & 1) == 0 ? target + step / 2 : target - (step + 1) / 2;
+            if (rank < 0 || rank >= count)
+                continue;
+
+            final long left = deadline - clock.nanoTime();
+            final int result = left > 0
+                    ? solver.solve(cleared, candidates[ranking[rank]], left)
+                    : HandSolver.UNKNOWN;
+
+            if (result == HandSolver.DOOMED) {
+                addRejection();
+                continue;
+            }
+            if (result == HandSolver.UNKNOWN)
+                addFallback();
+
+            copy(candidates[ranking[rank]], hand);
+            return;
+        }
+
+        // Every candidate is doomed, so it doesn't matter which one
+        copy(candidates[ranking[target]], hand);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public float getDifficulty() {
+        return difficulty;
+    }
+
+    // From 0 (easiest) to 1 (hardest). It may be changed between deals,
+    // for instance to adapt to how well the player is doing
+    public void setDifficulty(float difficulty) {
+        this.difficulty = Math.max(0f, Math.min(1f, difficulty));
+    }
+
+    //endregion
+}
@@ -0,0 +1,123 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Remembers, for every shape in the hand, an anchor where it last fit on
+// the board, so that determining whether it is game over after a drop is
+// usually a single placement test per piece rather than a full board scan.
+//
+// A cached anchor only stops being valid if a later put overlapped it,
+// which is exactly what re-testing that one placement tells. A full scan
+// is only needed when that happens, or when the piece in the slot changed.
+// Pieces that didn't fit anywhere are only scanned again once cells were
+// removed from the board, since until then the board has only gained cells.
+public class FeasibilityCache {
+
+    //region Members
+
+    private final BitBoard board;
+    private final Hand hand;
+
+    // Per hand slot, the shape the cached result belongs to, the anchor
+    // where it fits (-1 if none) and the board removal count at the time
+    private final Shape[] shapes;
+    private final int[] anchors;
+    private final int[] removals;
+
+    // If enabled, every answer is checked against an exhaustive scan
+    private boolean verify;
+
+    //endregion
+
+    //region Constructor
+
+    public FeasibilityCache(final BitBoard board, final Hand hand) {
+        this.board = board;
+        this.hand = hand;
+
+        shapes = new Shape[hand.getCount()];
+        anchors = new int[hand.getCount()];
+        removals = new int[hand.getCount()];
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // True if the shape on the given slot fits anywhere, using the cache if possible
+    private boolean fits(int slot, Shape shape) {
+        if (shapes[slot] == shape) {
+            final int anchor = anchors[slot];
+            if (anchor >= 0) {
+                if (board.canPut(shape, anchor % board.size, anchor / board.size))
+                    return true;
+            } else if (removals[slot] == board.getRemovalCount()) {
+                return false;
+            }
+        }
+
+        shapes[slot] = shape;
+        anchors[slot] = board.findPlacement(shape);
+        removals[slot] = board.getRemovalCount();
+        return anchors[slot] >= 0;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // True if any of the shapes left on the hand can still be put on the board
+    public boolean anyFits() {
+        boolean result = false;
+        for (int i = 0; i < shapes.length; ++i) {
+            final Shape shape = hand.get(i);
+            if (shape != null && fits(i, shape)) {
+                result = true;
+                if (!verify)
+                    break;
+            }
+        }
+
+        if (verify) {
+            boolean expected = false;
+            for (int i = 0; i < shapes.length; ++i) {
+                final Shape shape = hand.get(i);
+                if (shape != null && board.canPutAnywhere(shape))
+                    expected = true;
+            }
+            if (result != expected)
+                throw new IllegalStateException(
+                        "Feasibility cache said " + result + " but a full scan said " + expected);
+        }
+
+        return result;
+    }
+
+    // Enables the exhaustive verification mode, meant to be used by tests
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    // Forgets every cached anchor, e.g. after the board is loaded from a save
+    public void invalidate() {
+        for (int i = 0; i < shapes.length; ++i)
+            shapes[i] = null;
+    }
+
+    //endregion
+}
@@ -0,0 +1,58 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Everything needed to go back to a point of a game: the cells of the board,
+// the shapes on the hand, the score and where the random sequence was, so
+// that the very same shapes are dealt again after going back.
+public class GameSnapshot {
+
+    //region Members
+
+    public final BoardSnapshot board;
+    private final Shape[] hand;
+    public final int score;
+    public final long randomState;
+
+    //endregion
+
+    //region Constructor
+
+    // The board snapshot should be taken from the previous one, so that they share rows
+    public GameSnapshot(final BoardSnapshot board, final Hand hand, int score, long randomState) {
+        this.board = board;
+        this.hand = new Shape[hand.getCount()];
+        for (int i = 0; i < this.hand.length; ++i)
+            this.hand[i] = hand.get(i);
+
+        this.score = score;
+        this.randomState = randomState;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Puts the shapes of the snapshot back on the given hand
+    public void restoreHand(Hand hand) {
+        for (int i = 0; i < this.hand.length; ++i)
+            hand.set(i, this.hand[i]);
+    }
+
+    //endregion
+}
@@ -0,0 +1,128 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+
+// A complete game without anything to draw: the board, the hand and the scoring.
+// Moves are made by putting the shape on a hand slot at a given board anchor,
+// which clears any complete line, adds the score and refills an empty hand.
+//
+// This is what the screens do on every drop, and what simulations and bots
+// can run as fast as they want without a graphics context or audio backend.
+public class GameState implements BinSerializable {
+
+    //region Members
+
+    public final BitBoard board;
+    public final Hand hand;
+    public final Scoring scoring;
+
+    private final SeededRandom random;
+    private final FeasibilityCache feasibility;
+
+    // Decides which shapes are dealt, or null to deal them at random
+    private HandGenerator generator;
+
+    // How many lines the last move cleared
+    private int lastClearCount;
+
+    //endregion
+
+    //region Constructor
+
+    public GameState(int boardSize, int handCount, final Scoring scoring, final SeededRandom random) {
+        this.scoring = scoring;
+        this.random = random;
+
+        board = new BitBoard(boardSize);
+        hand = new Hand(handCount);
+        feasibility = new FeasibilityCache(board, hand);
+        hand.takeMore(random);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Puts the shape on the given hand slot with its top-left cell at (x, y).
+    // Returns false if there is no shape there or it doesn't fit, and nothing changed
+    public boolean put(int slot, int x, int y) {
+        final Shape shape = hand.get(slot);
+        if (shape == null || !board.canPut(shape, x, y))
+            return false;
+
+        board.put(shape, x, y);
+        hand.remove(slot);
+        scoring.addPieceScore(shape.area);
+
+        lastClearCount = board.findComplete();
+        board.clearComplete();
+        scoring.addBoardScore(lastClearCount, board.size);
+
+        if (hand.isFinished()) {
+            if (generator == null)
+                hand.takeMore(random);
+            else
+                generator.deal(board, hand, random);
+        }
+
+        return true;
+    }
+
+    public void setHandGenerator(HandGenerator generator) {
+        this.generator = generator;
+    }
+
+    public int getLastClearCount() {
+        return lastClearCount;
+    }
+
+    // If no shape can be put, or the scoring says so, then it is game over
+    public boolean isGameOver() {
+        return scoring.isGameOver() || !feasibility.anyFits();
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // board, hand, random, score
+        board.write(out);
+        hand.write(out);
+        random.write(out);
+        out.writeInt(scoring.getCurrentScore());
+    }
+
+    @Override
+    public void read(DataInputStream in) throws IOException {
+        board.read(in);
+        hand.read(in);
+        random.read(in);
+        scoring.setCurrentScore(in.readInt());
+        feasibility.invalidate();
+    }
+
+    //endregion
+}
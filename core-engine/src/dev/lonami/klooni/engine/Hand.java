@@ -0,0 +1,113 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+
+// The shapes the player can currently put on the board. Once all of
+// them have been put (the "hand" is finished) a new set is taken.
+public class Hand implements BinSerializable {
+
+    //region Members
+
+    private final Shape[] shapes;
+
+    //endregion
+
+    //region Constructor
+
+    public Hand(int count) {
+        shapes = new Shape[count];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public int getCount() {
+        return shapes.length;
+    }
+
+    // Shape on the given slot, or null if it was already put
+    public Shape get(int slot) {
+        return shapes[slot];
+    }
+
+    public void set(int slot, Shape shape) {
+        shapes[slot] = shape;
+    }
+
+    // Marks the shape on the given slot as put, returning it
+    public Shape remove(int slot) {
+        final Shape shape = shapes[slot];
+        shapes[slot] = null;
+        return shape;
+    }
+
+    // Determines whether all the shapes have been put
+    public boolean isFinished() {
+        for (int i = 0; i < shapes.length; ++i)
+            if (shapes[i] != null)
+                return false;
+
+        return true;
+    }
+
+    // Takes a new set of shapes. Should be called when there are no more left
+    public void takeMore(final Random random) {
+        for (int i = 0; i < shapes.length; ++i)
+            shapes[i] = Shape.random(random);
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // Piece count, false if piece == null, true + piece if piece != null
+        out.writeInt(shapes.length);
+        for (int i = 0; i < shapes.length; ++i) {
+            if (shapes[i] == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                shapes[i].write(out);
+            }
+        }
+    }
+
+    @Override
+    public void read(DataInputStream in) throws IOException {
+        // If the saved piece count does not match the current piece count,
+        // then an IOException is thrown since the data saved was invalid
+        final int savedPieceCount = in.readInt();
+        if (savedPieceCount != shapes.length)
+            throw new IOException("Invalid piece count saved.");
+
+        for (int i = 0; i < shapes.length; i++)
+            shapes[i] = in.readBoolean() ? Shape.read(in) : null;
+    }
+
+    //endregion
+}
@@ -0,0 +1,125 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// Strategy deciding which shapes are dealt whenever the hand is refilled.
+//
+// Every deal is timed and the candidates each strategy went through are
+// counted, so that they can be tuned for the hardware they will run on.
+public abstract class HandGenerator {
+
+    //region Members
+
+    protected final Clock clock;
+
+    private long deals;
+    private long candidates;
+    private long rejections;
+    private long fallbacks;
+    private long totalNanos;
+    private long maxNanos;
+
+    //endregion
+
+    //region Constructor
+
+    protected HandGenerator(final Clock clock) {
+        this.clock = clock;
+    }
+
+    //endregion
+
+    //region Protected methods
+
+    // Fills every slot of the hand with a new shape, for the given board
+    protected abstract void generate(BitBoard board, Hand hand, Random random);
+
+    // Called by implementations for every candidate hand they consider
+    protected void addCandidate() {
+        candidates++;
+    }
+
+    // Called by implementations for every candidate that turned out to be unfit
+    protected void addRejection() {
+        rejections++;
+    }
+
+    // Called by implementations when they ran out of time and dealt a random hand
+    protected void addFallback() {
+        fallbacks++;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public final void deal(BitBoard board, Hand hand, Random random) {
+        final long start = clock.nanoTime();
+        generate(board, hand, random);
+        final long elapsed = clock.nanoTime() - start;
+
+        deals++;
+        totalNanos += elapsed;
+        maxNanos = Math.max(maxNanos, elapsed);
+    }
+
+    //endregion
+
+    //region Statistics
+
+    public long getDeals() {
+        return deals;
+    }
+
+    public long getCandidates() {
+        return candidates;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    // Fraction of the candidate hands that were thrown away
+    public float getRejectionRate() {
+        return candidates == 0 ? 0f : (float) rejections / candidates;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getAverageNanos() {
+        return deals == 0 ? 0 : totalNanos / deals;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public void resetStatistics() {
+        deals = candidates = rejections = fallbacks = totalNanos = maxNanos = 0;
+    }
+
+    //endregion
+}
@@ -0,0 +1,270 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Tells whether every shape left on the hand can still be put on the board,
+// in some order and with the lines they clear applied between placements.
+//
+// Unlike FeasibilityCache, which only knows whether each shape fits on its
+// own right now, this can tell a hand that is doomed before it's game over,
+// and a shape that only fits once another one clears a line.
+//
+// The search stops on the first order that works. Positions known to be dead
+// end are remembered by their hash across calls, since that never changes.
+// A shape that doesn't fit anywhere needs some line cleared before it's put,
+// because otherwise the board only gets fuller. If a single shape that fits
+// is left besides it, only its placements clearing a line are worth trying.
+public class HandSolver {
+
+    //region Members
+
+    private final Clock clock;
+    private final int size;
+
+    // Steps searched between checks of the clock, fewer on bigger boards
+    private final int clockCheckInterval;
+
+    // Scratch board and legal anchors per search depth
+    private final BitBoard[] boards;
+    private final int[][] anchors;
+
+    // The hand being searched and which of its slots are still unused
+    private final Shape[] shapes;
+    private int usedSlots;
+    private int remainingCount;
+    private long remainingKey;
+
+    // Dead end positions, by board hash and shapes left
+    private final TranspositionTable deadEnds;
+
+    // Budget of the current search, whether it ran out, and the steps since
+    // the start, which are nodes and each shape tried on them
+    private long deadline;
+    private boolean aborted;
+    private long steps;
+
+    // Order that was found to work, as slot and anchor per placement
+    private final int[] orderSlots;
+    private final int[] orderAnchors;
+    private int orderLength;
+
+    private long nodes;
+    private long elapsedNanos;
+
+    //endregion
+
+    //region Static members
+
+    // Every shape left can be put in the order found
+    public static final int FEASIBLE = 0;
+
+    // No order can put every shape left, whatever the player does
+    public static final int DOOMED = 1;
+
+    // The budget ran out before knowing
+    public static final int UNKNOWN = 2;
+
+    // Cells worth of steps searched between checks of the clock, since every
+    // step scans the whole board, and a big one can take longer than a frame
+    // to scan for each placement of each shape left
+    private static final int CLOCK_CHECK_CELLS = 1024;
+
+    private static final int DEFAULT_TABLE_CAPACITY = 1 << 14;
+
+    //endregion
+
+    //region Constructor
+
+    public HandSolver(int size, int handCount, final Clock clock) {
+        this.clock = clock;
+        this.size = size;
+        clockCheckInterval = Math.max(1, CLOCK_CHECK_CELLS / (size * size));
+
+        boards = new BitBoard[handCount + 1];
+        anchors = new int[handCount + 1][size * size];
+        for (int i = 0; i <= handCount; ++i)
+            boards[i] = new BitBoard(size);
+
+        shapes = new Shape[handCount];
+        orderSlots = new int[handCount];
+        orderAnchors = new int[handCount];
+        deadEnds = new TranspositionTable(DEFAULT_TABLE_CAPACITY);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // True if the shape on the slot was already tried by an earlier unused slot
+    private boolean isRepeated(int slot) {
+        for (int i = 0; i < slot; ++i)
+            if ((usedSlots & (1 << i)) == 0 && shapes[i] == shapes[slot])
+                return true;
+
+        return false;
+    }
+
+    // Counts one more step, and tells whether the search must stop
+    private boolean outOfTime() {
+        if (++steps % clockCheckInterval == 0 && clock.nanoTime() > deadline)
+            aborted = true;
+        return aborted;
+    }
+
+    // True if every shape left can be put from the board at the given depth
+    private boolean search(int depth) {
+        if (remainingCount == 0)
+            return true;
+
+        nodes++;
+        if (outOfTime())
+            return false;
+
+        final BitBoard board = boards[depth];
+        final long key = board.getHash() ^ Zobrist.mix(remainingKey);
+        if (deadEnds.probe(key, remainingCount) >= 0)
+            return false;
+
+        int blocked = 0;
+        for (int slot = 0; slot < shapes.length; ++slot)
+            if (shapes[slot] != null && (usedSlots & (1 << slot)) == 0 && !board.canPutAnywhere(shapes[slot]))
+                blocked++;
+
+        final boolean mustClear = blocked != 0 && remainingCount - blocked == 1;
+        if (blocked == remainingCount) {
+            deadEnds.store(key, remainingCount, 0f);
+            return false;
+        }
+
+        // Placements clearing lines are tried first, since they're the most likely to work
+        final BitBoard child = boards[depth + 1];
+        final int[] found = anchors[depth];
+        for (int pass = 0; pass < (mustClear ? 1 : 2); ++pass) {
+            for (int slot = 0; slot < shapes.length; ++slot) {
+                final Shape shape = shapes[slot];
+                if (shape == null || (usedSlots & (1 << slot)) != 0 || isRepeated(slot))
+                    continue;
+                if (outOfTime())
+                    return false;
+
+                final int count = board.legalPlacements(shape, found);
+                for (int i = 0; i < count; ++i) {
+                    final int x = found[i] % size, y = found[i] / size;
+                    if ((board.countCompletedBy(shape, x, y) != 0) != (pass == 0))
+                        continue;
+
+                    child.copyFrom(board);
+                    child.put(shape, x, y);
+                    child.findComplete();
+                    child.clearComplete();
+
+                    usedSlots |= 1 << slot;
+                    remainingCount--;
+                    remainingKey -= Zobrist.SHAPE_KEYS[shape.shapeIndex];
+                    orderSlots[depth] = slot;
+                    orderAnchors[depth] = found[i];
+                    final boolean feasible = search(depth + 1);
+                    remainingKey += Zobrist.SHAPE_KEYS[shape.shapeIndex];
+                    remainingCount++;
+                    usedSlots &= ~(1 << slot);
+
+                    if (feasible)
+                        return true;
+                    if (aborted)
+                        return false;
+                }
+            }
+        }
+
+        deadEnds.store(key, remainingCount, 0f);
+        return false;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Searches an order to put every shape left on the hand within the given
+    // budget. Returns FEASIBLE, DOOMED or UNKNOWN if the budget ran out
+    public int solve(BitBoard board, Hand hand, long budgetNanos) {
+        final long start = clock.nanoTime();
+        deadline = start + budgetNanos;
+        aborted = false;
+        nodes = 0;
+        steps = 0;
+
+        // Lines left complete on the board (the hand may be dealt before
+        // they're cleared) would be cleared anyway before the next shape
+        boards[0].copyFrom(board);
+        boards[0].findComplete();
+        boards[0].clearComplete();
+
+        remainingCount = 0;
+        for (int i = 0; i < shapes.length; ++i) {
+            shapes[i] = i < hand.getCount() ? hand.get(i) : null;
+            if (shapes[i] != null)
+                remainingCount++;
+        }
+        usedSlots = 0;
+        remainingKey = Zobrist.handKey(shapes);
+        deadEnds.nextSearch();
+
+        orderLength = remainingCount;
+        final boolean feasible = search(0);
+        if (!feasible)
+            orderLength = 0;
+
+        elapsedNanos = clock.nanoTime() - start;
+        return feasible ? FEASIBLE : aborted ? UNKNOWN : DOOMED;
+    }
+
+    // The order found by the last FEASIBLE solve, as many placements as shapes were left
+    public int getOrderLength() {
+        return orderLength;
+    }
+
+    public int getOrderSlot(int k) {
+        return orderSlots[k];
+    }
+
+    public int getOrderX(int k) {
+        return orderAnchors[k] % size;
+    }
+
+    public int getOrderY(int k) {
+        return orderAnchors[k] / size;
+    }
+
+    //endregion
+
+    //region Statistics
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public TranspositionTable getDeadEnds() {
+        return deadEnds;
+    }
+
+    //endregion
+}
@@ -0,0 +1,36 @@
+
+package dev.lonami.klooni.engine;
+
+// Immutable result of a hint search, so it can be handed between threads.
+// The version tells which request (and so which board) it was computed for.
+public class Hint {
+
+    //region Members
+
+    public final long version;
+
+    // Which shape to put, and where
+    public final int slot;
+    public final Shape shape;
+    public final int x, y;
+
+    // How many placements ahead the search went, and how good the move is
+    public final int depth;
+    public final float evaluation;
+
+    //endregion
+
+    //region Constructor
+
+    public Hint(long version, int slot, Shape shape, int x, int y, int depth, float evaluation) {
+        this.version = version;
+        this.slot = slot;
+        this.shape = shape;
+        this.x = x;
+        this.y = y;
+        this.depth = depth;
+        this.evaluation = evaluation;
+    }
+
+    //endregion
+}
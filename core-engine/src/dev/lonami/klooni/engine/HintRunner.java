@@ -0,0 +1,11 @@
+
+package dev.lonami.klooni.engine;
+
+// Runs the searches of a hint service somewhere other than the render thread.
+// Platforms without threads don't provide one, and the service is stepped
+// on every frame instead, a few milliseconds at a time.
+public interface HintRunner {
+
+    // Keeps calling work on the service until it's disposed
+    void start(HintService service);
+}
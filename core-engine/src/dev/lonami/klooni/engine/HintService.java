@@ -0,0 +1,135 @@
+
+package dev.lonami.klooni.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Computes hints for the current position without blocking the render thread.
+//
+// The render thread calls request whenever the board or the hand change, which
+// takes an immutable snapshot of both, and poll to read the latest hint. The
+// searches run on work, either from a HintRunner thread or a slice at a time
+// from the render thread when there are no threads (like on the web).
+//
+// Nothing is ever locked. Snapshots and results are swapped through atomic
+// references, and every request bumps a version: a search whose version is no
+// longer current is cancelled, and poll never returns a hint for an old board.
+public class HintService {
+
+    //region Members
+
+    private final Solver solver;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Snapshot> pending = new AtomicReference<Snapshot>();
+    private final AtomicReference<Hint> result = new AtomicReference<Hint>();
+
+    // Snapshot being searched, only touched by whoever calls work
+    private Snapshot current;
+
+    // Called whenever there's new work, so that a sleeping runner can wake up
+    private volatile Runnable wakeUp;
+    private volatile boolean disposed;
+
+    //endregion
+
+    //region Constructor
+
+    public HintService(int boardSize, int handCount, final Clock clock) {
+        solver = new Solver(boardSize, handCount, clock);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Asks for a hint on the given position, forgetting about any previous one.
+    // Must be called from the thread that changes the board and the hand
+    public void request(BitBoard board, Hand hand) {
+        final long requested = version.incrementAndGet();
+        pending.set(new Snapshot(requested, board, hand));
+        solver.setCancelled(true);
+
+        final Runnable wakeUp = this.wakeUp;
+        if (wakeUp != null)
+            wakeUp.run();
+    }
+
+    // The hint for the last requested position, or null if it's not ready yet
+    public Hint poll() {
+        final Hint hint = result.get();
+        return hint != null && hint.version == version.get() ? hint : null;
+    }
+
+    // Searches for up to the given time. Returns false if there was nothing to do.
+    // Only one thread may call this, either the runner's or the render thread
+    public boolean work(long budgetNanos) {
+        // Any request made from now on will cancel the search below, and
+        // any made before is picked up right away, so none can be missed
+        solver.setCancelled(false);
+        final Snapshot latest = pending.getAndSet(null);
+        if (latest != null)
+            current = latest;
+
+        if (current == null || disposed)
+            return false;
+
+        // A search that is cut short still returns the best move of the deepest
+        // iteration it completed, which is worth showing until there's a better one
+        solver.solve(current.board, current.hand, budgetNanos);
+        if (solver.getBestSlot() >= 0 && current.version == version.get()) {
+            final Hint previous = result.get();
+            if (previous == null || previous.version != current.version
+                    || solver.getDepthReached() >= previous.depth) {
+                result.set(new Hint(current.version, solver.getBestSlot(),
+                        current.hand.get(solver.getBestSlot()), solver.getBestX(), solver.getBestY(),
+                        solver.getDepthReached(), solver.getEvaluation()));
+            }
+        }
+
+        if (solver.isComplete() || current.version != version.get())
+            current = null;
+
+        return true;
+    }
+
+    public void setWakeUp(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    }
+
+    // Stops any search, after which work does nothing
+    public void dispose() {
+        disposed = true;
+        solver.setCancelled(true);
+
+        final Runnable wakeUp = this.wakeUp;
+        if (wakeUp != null)
+            wakeUp.run();
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    //endregion
+
+    //region Sub-classes
+
+    // Copy of a position, which is never modified once taken
+    private static class Snapshot {
+        final long version;
+        final BitBoard board;
+        final Hand hand;
+
+        Snapshot(long version, BitBoard board, Hand hand) {
+            this.version = version;
+            this.board = new BitBoard(board.size);
+            this.board.copyFrom(board);
+            this.hand = new Hand(hand.getCount());
+            for (int i = 0; i < hand.getCount(); ++i)
+                this.hand.set(i, hand.get(i));
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,260 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Exact survival probabilities for every reachable board of a tiny board size,
+// as written by the simulator's PerfectPlayGenerator.
+//
+// The value of a board is the probability of surviving as many hands as the
+// table's horizon, from before the next hand is dealt, playing perfectly with
+// hands dealt like Hand.takeMore. Only that one value per board is stored,
+// once per symmetry class. The best move for a hand is found when asked, by
+// searching every order and placement of its shapes with the Solver, and
+// keeping the one that leaves the board with the highest value.
+//
+// The file is mapped into memory rather than read, so only the pages touched
+// by queries are ever loaded, and finding a board is a binary search.
+//
+// Layout, big-endian: the header (see the constructor), the canonical packed
+// cells of every board in unsigned ascending order (as ints up to 5x5, longs
+// above), and then the value of every board in the same order.
+//
+// Queries use scratch space, so every thread should have its own instance,
+// although they can share the same buffer.
+public class PerfectPlayTable implements Solver.Evaluator {
+
+    //region Members
+
+    public final int size;
+    public final int horizon;
+
+    private final ByteBuffer buffer;
+    private final Symmetry symmetry;
+    private final Solver solver;
+
+    private final int boardCount;
+    private final int keyBytes;
+
+    // Where every section starts, in bytes
+    private final int keysOffset;
+    private final int valuesOffset;
+
+    // Result of the last query
+    private float survival;
+    private int bestSlot, bestX, bestY;
+
+    //endregion
+
+    //region Static members
+
+    public static final int MAGIC = 0x4B505054; // "KPPT"
+    public static final int VERSION = 2;
+
+    // The cells of a board are packed in a long
+    public static final int MAX_SIZE = Symmetry.MAX_PACKED_SIZE;
+
+    // Hands hold up to this many shapes
+    public static final int HAND_COUNT = 3;
+
+    public static final int HEADER_BYTES = 7 * 4;
+
+    //endregion
+
+    //region Constructor
+
+    // Reads a table from the given buffer, which is kept and not copied
+    public PerfectPlayTable(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a perfect play table.");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported perfect play table version.");
+
+        // magic, version, size, horizon, shape count, board count, key bytes
+        size = buffer.getInt(8);
+        horizon = buffer.getInt(12);
+        final int shapeCount = buffer.getInt(16);
+        boardCount = buffer.getInt(20);
+        keyBytes = buffer.getInt(24);
+        if (size < 1 || size > MAX_SIZE || keyBytes != keyBytes(size))
+            throw new IOException("Invalid perfect play table header.");
+        if (playableShapes(size).length != shapeCount)
+            throw new IOException("The shapes of the table don't match the current ones.");
+
+        keysOffset = HEADER_BYTES;
+        valuesOffset = keysOffset + boardCount * keyBytes;
+        if (buffer.capacity() < valuesOffset + boardCount * 4)
+            throw new IOException("The perfect play table is truncated.");
+
+        symmetry = new Symmetry(size);
+        solver = new Solver(size, HAND_COUNT, Clock.SYSTEM, this);
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Maps the whole file into memory
+    public static PerfectPlayTable open(String path) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            return new PerfectPlayTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            // The mapping stays valid after the file is closed
+            file.close();
+        }
+    }
+
+    // The shapes that fit on an empty board of the given size, in shape index order.
+    // The rest can never be put, so a hand with any of them is as good as lost
+    public static Shape[] playableShapes(int size) {
+        int count = 0;
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+            if (Shape.get(s).cellCols <= size && Shape.get(s).cellRows <= size)
+                count++;
+
+        final Shape[] result = new Shape[count];
+        count = 0;
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+            if (Shape.get(s).cellCols <= size && Shape.get(s).cellRows <= size)
+                result[count++] = Shape.get(s);
+
+        return result;
+    }
+
+    // Bytes every packed board takes on the file
+    public static int keyBytes(int size) {
+        return size * size <= 32 ? 4 : 8;
+    }
+
+    // Packs the cells of the board into a long (bit y * size + x)
+    public static long packCells(BitBoard board) {
+        long cells = 0;
+        for (int i = 0; i < board.size * board.size; ++i)
+            if (!board.isEmpty(i % board.size, i / board.size))
+                cells |= 1L << i;
+
+        return cells;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private long keyAt(int index) {
+        return keyBytes == 4
+                ? buffer.getInt(keysOffset + index * 4) & 0xFFFFFFFFL
+                : buffer.getLong(keysOffset + index * 8);
+    }
+
+    // Index of the board with the given canonical cells, or -1 if it's not on the table
+    private int find(long cells) {
+        int low = 0, high = boardCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long key = keyAt(middle);
+            if (key == cells)
+                return middle;
+
+            if (key + Long.MIN_VALUE < cells + Long.MIN_VALUE)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return -1;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Probability of surviving the horizon from the board before a hand is
+    // dealt, or -1 if it's not on the table (boards of another size, with
+    // lines left to clear or that can't be reached)
+    public float getValue(BitBoard board) {
+        if (board.size != size)
+            return -1f;
+
+        final int index = find(symmetry.canonicalCells(packCells(board)));
+        return index < 0 ? -1f : buffer.getFloat(valuesOffset + index * 4);
+    }
+
+    // Boards that aren't on the table can't be survived by putting shapes on them
+    @Override
+    public float evaluate(BitBoard board) {
+        return Math.max(0f, getValue(board));
+    }
+
+    // Looks up the position, returning false if it is not on the table.
+    // Otherwise the probability of surviving and the best move (if any shape
+    // fits) can be queried after. A null hand means it has yet to be dealt.
+    //
+    // With a hand, the value is that of the best board left once all of its
+    // shapes are put, or 0 if they can't all be put, so it's the probability
+    // of surviving the hand and then as many more as the horizon
+    public boolean lookup(BitBoard board, Hand hand) {
+        survival = getValue(board);
+        bestSlot = bestX = bestY = -1;
+        if (survival < 0f) {
+            survival = 0f;
+            return false;
+        }
+        if (hand == null)
+            return true;
+
+        survival = 0f;
+        if (solver.solve(board, hand, Long.MAX_VALUE / 4)) {
+            survival = Math.max(0f, solver.getEvaluation());
+            bestSlot = solver.getBestSlot();
+            bestX = solver.getBestX();
+            bestY = solver.getBestY();
+        }
+        return true;
+    }
+
+    // Probability of surviving the position of the last lookup playing perfectly
+    public float getSurvival() {
+        return survival;
+    }
+
+    // Hand slot and anchor of the best move of the last lookup, -1 if there's none
+    public int getBestSlot() {
+        return bestSlot;
+    }
+
+    public int getBestX() {
+        return bestX;
+    }
+
+    public int getBestY() {
+        return bestY;
+    }
+
+    // Amount of boards on the table, one per symmetry class
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    //endregion
+}
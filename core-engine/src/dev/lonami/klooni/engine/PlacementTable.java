@@ -0,0 +1,165 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Precomputed occupancy masks, in the BitBoard layout, of every shape
+// a piece can have put at every legal anchor of a board of a given size.
+//
+// The placements of a shape are stored contiguously, row-major by anchor,
+// and each of them spans the same amount of words so testing a placement
+// is a fixed, branch-free loop of AND operations.
+//
+// Tables are shared by every board of the same size, and only built for
+// boards up to MAX_SIZE, because bigger ones would need too much memory.
+public class PlacementTable {
+
+    //region Members
+
+    public final int size;
+
+    // Amount of consecutive words every placement mask spans
+    final int span;
+
+    // Per shape, its size and the index of its first placement
+    private final int[] shapeCols;
+    private final int[] shapeRows;
+    private final int[] shapeFirst;
+
+    // Per placement, the first word it touches and its masks (span words each)
+    private final int[] firstWord;
+    private final long[] masks;
+
+    //endregion
+
+    //region Static members
+
+    public static final int MAX_SIZE = 32;
+
+    private static final PlacementTable[] tables = new PlacementTable[MAX_SIZE + 1];
+
+    //endregion
+
+    //region Constructor
+
+    private PlacementTable(int size) {
+        this.size = size;
+        final int wordCount = (size * size + 63) >>> 6;
+
+        // First pass to know how many placements and words per placement there are
+        shapeCols = new int[Shape.SHAPE_COUNT];
+        shapeRows = new int[Shape.SHAPE_COUNT];
+        shapeFirst = new int[Shape.SHAPE_COUNT + 1];
+        int maxSpan = 1;
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            shapeCols[s] = Shape.get(s).cellCols;
+            shapeRows[s] = Shape.get(s).cellRows;
+            final int anchors = Math.max(0, size - shapeCols[s] + 1) * Math.max(0, size - shapeRows[s] + 1);
+            shapeFirst[s + 1] = shapeFirst[s] + anchors;
+
+            // The widest placement is the one starting at the end of a word
+            final int bits = (shapeRows[s] - 1) * size + shapeCols[s];
+            maxSpan = Math.max(maxSpan, Math.min(wordCount, (63 + bits + 63) >>> 6));
+        }
+        span = maxSpan;
+
+        // Second pass to fill the masks of every placement
+        firstWord = new int[shapeFirst[Shape.SHAPE_COUNT]];
+        masks = new long[firstWord.length * span];
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            final Shape shape = Shape.get(s);
+            final int anchorCols = size - shapeCols[s] + 1;
+            for (int p = shapeFirst[s]; p < shapeFirst[s + 1]; ++p) {
+                final int x = (p - shapeFirst[s]) % anchorCols;
+                final int y = (p - shapeFirst[s]) / anchorCols;
+
+                // Align the span to the end of the board if it would go past it
+                final int first = Math.min((y * size + x) >>> 6, wordCount - span);
+                firstWord[p] = first;
+                for (int i = 0; i < shape.cellRows; ++i) {
+                    for (int j = 0; j < shape.cellCols; ++j) {
+                        if (shape.filled(i, j)) {
+                            final int index = (y + i) * size + x + j;
+                            masks[p * span + (index >>> 6) - first] |= 1L << index;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Returns the shared table for the given board size, or null if it's too big
+    public static PlacementTable forSize(int size) {
+        if (size > MAX_SIZE)
+            return null;
+
+        synchronized (tables) {
+            if (tables[size] == null)
+                tables[size] = new PlacementTable(size);
+
+            return tables[size];
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Index of the placement of the given piece at the given anchor, or -1 if it's out of bounds
+    public int placement(Shape shape, int x, int y) {
+        final int s = shape.shapeIndex;
+        final int anchorCols = size - shapeCols[s] + 1;
+        if (x < 0 || y < 0 || x >= anchorCols || y > size - shapeRows[s])
+            return -1;
+
+        return shapeFirst[s] + y * anchorCols + x;
+    }
+
+    // Placements of a shape are in the range [first(shape), end(shape))
+    public int first(Shape shape) {
+        return shapeFirst[shape.shapeIndex];
+    }
+
+    public int end(Shape shape) {
+        return shapeFirst[shape.shapeIndex + 1];
+    }
+
+    // Anchor (as y * size + x) of the given placement of the given piece
+    public int anchor(Shape shape, int placement) {
+        final int s = shape.shapeIndex;
+        final int anchorCols = size - shapeCols[s] + 1;
+        final int i = placement - shapeFirst[s];
+        return (i / anchorCols) * size + i % anchorCols;
+    }
+
+    // True if the placement doesn't overlap with anything on the given words
+    public boolean fits(long[] words, int placement) {
+        final int first = firstWord[placement];
+        final int base = placement * span;
+        for (int w = 0; w < span; ++w)
+            if ((words[first + w] & masks[base + w]) != 0)
+                return false;
+
+        return true;
+    }
+
+    //endregion
+}
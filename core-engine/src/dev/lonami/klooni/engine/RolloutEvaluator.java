@@ -0,0 +1,261 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// Estimates how good a position is by playing it out many times, dealing
+// random shapes whenever the hand is finished and moving with a fast policy,
+// and averaging the points scored until the game ends or the horizon is hit.
+//
+// It is an anytime algorithm: run may be called with any budget and as many
+// times as wanted, and the estimate is always the average of every playout
+// so far, which only gets more precise the longer it runs. Every board and
+// buffer is allocated up front, so playing out allocates nothing.
+//
+// An evaluator must only be used by one thread at a time, but many of them
+// (each with its own random, see SeededRandom.split) can play out the same
+// position at once, and their results be put together with merge.
+public class RolloutEvaluator {
+
+    //region Members
+
+    private final Clock clock;
+    private final Random random;
+    private final int size;
+    private final int policy;
+    private final int horizon;
+
+    // The position being evaluated, with any complete lines already cleared
+    private final BitBoard root;
+    private final Shape[] rootShapes;
+
+    // Scratch state of the playout being made
+    private final BitBoard board;
+    private final Shape[] shapes;
+    private final int[] anchors;
+
+    // Results of every playout since the last reset
+    private long rollouts;
+    private long moves;
+    private double sum;
+    private double sumSquares;
+
+    //endregion
+
+    //region Static members
+
+    // Playouts put a random shape on a random place that fits
+    public static final int POLICY_RANDOM = 0;
+
+    // Playouts put the shape that clears the most lines, preferring the bigger ones
+    public static final int POLICY_GREEDY = 1;
+
+    // Moves after which a playout stops even if the game isn't over
+    public static final int DEFAULT_HORIZON = 64;
+
+    //endregion
+
+    //region Constructor
+
+    public RolloutEvaluator(int size, int handCount, final Clock clock, final Random random) {
+        this(size, handCount, POLICY_GREEDY, DEFAULT_HORIZON, clock, random);
+    }
+
+    public RolloutEvaluator(int size, int handCount, int policy, int horizon,
+                            final Clock clock, final Random random) {
+        if (policy != POLICY_RANDOM && policy != POLICY_GREEDY)
+            throw new IllegalArgumentException("Unknown playout policy given: " + policy);
+
+        this.clock = clock;
+        this.random = random;
+        this.size = size;
+        this.policy = policy;
+        this.horizon = horizon;
+
+        root = new BitBoard(size);
+        rootShapes = new Shape[handCount];
+        board = new BitBoard(size);
+        shapes = new Shape[handCount];
+        anchors = new int[size * size];
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Plays the root position out once, returning the points scored
+    private int playout() {
+        board.copyFrom(root);
+        int remaining = 0;
+        for (int i = 0; i < shapes.length; ++i) {
+            shapes[i] = rootShapes[i];
+            if (shapes[i] != null)
+                remaining++;
+        }
+
+        int points = 0;
+        int move = 0;
+        for (; move < horizon; ++move) {
+            if (remaining == 0) {
+                for (int i = 0; i < shapes.length; ++i)
+                    shapes[i] = Shape.random(random);
+
+                remaining = shapes.length;
+            }
+
+            final int chosen = policy == POLICY_GREEDY ? chooseGreedy() : chooseRandom();
+            if (chosen < 0)
+                break;
+
+            final int slot = chosen / (size * size), anchor = chosen % (size * size);
+            final Shape shape = shapes[slot];
+            board.put(shape, anchor % size, anchor / size);
+            shapes[slot] = null;
+            remaining--;
+
+            points += shape.area + Scoring.calculateClearScore(board.findComplete(), size);
+            board.clearComplete();
+        }
+
+        moves += move;
+        return points;
+    }
+
+    private void addPlayout(int points) {
+        sum += points;
+        sumSquares += (double) points * points;
+        rollouts++;
+    }
+
+    // Move (as slot * size * size + anchor) that clears the most lines, or -1 if none fits
+    private int chooseGreedy() {
+        int best = -1, bestValue = -1, ties = 0;
+        for (int slot = 0; slot < shapes.length; ++slot) {
+            final Shape shape = shapes[slot];
+            if (shape == null)
+                continue;
+
+            final int found = board.legalPlacements(shape, anchors);
+            for (int i = 0; i < found; ++i) {
+                final int value = board.countCompletedBy(
+                        shape, anchors[i] % size, anchors[i] / size) * 100 + shape.area;
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    ties = 1;
+                } else if (value < bestValue || random.nextInt(++ties) != 0) {
+                    continue;
+                }
+                best = slot * size * size + anchors[i];
+            }
+        }
+        return best;
+    }
+
+    // Any move that fits, all of them being equally likely, or -1 if none does
+    private int chooseRandom() {
+        int chosen = -1, seen = 0;
+        for (int slot = 0; slot < shapes.length; ++slot) {
+            if (shapes[slot] == null)
+                continue;
+
+            final int found = board.legalPlacements(shapes[slot], anchors);
+            if (found != 0) {
+                seen += found;
+                final int pick = random.nextInt(seen);
+                if (pick < found)
+                    chosen = slot * size * size + anchors[pick];
+            }
+        }
+        return chosen;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Starts evaluating the given position, forgetting about every previous playout
+    public void reset(BitBoard board, Hand hand) {
+        root.copyFrom(board);
+        root.findComplete();
+        root.clearComplete();
+        for (int i = 0; i < rootShapes.length; ++i)
+            rootShapes[i] = hand.get(i);
+
+        resetStatistics();
+    }
+
+    // Forgets about every previous playout, but keeps evaluating the same position
+    public void resetStatistics() {
+        rollouts = moves = 0;
+        sum = sumSquares = 0.0;
+    }
+
+    // Plays out the position the given amount of times, regardless of how long it takes
+    public void run(int rollouts) {
+        for (int i = 0; i < rollouts; ++i)
+            addPlayout(playout());
+    }
+
+    // Plays out the position until the time budget runs out or the given amount
+    // of playouts is made, whatever comes first, returning how many were made
+    public int run(long budgetNanos, int maxRollouts) {
+        final long deadline = clock.nanoTime() + budgetNanos;
+        int count = 0;
+        while (count < maxRollouts && clock.nanoTime() <= deadline) {
+            addPlayout(playout());
+            count++;
+        }
+        return count;
+    }
+
+    // Adds the playouts of another evaluator of the same position to this one's
+    public void merge(RolloutEvaluator other) {
+        rollouts += other.rollouts;
+        moves += other.moves;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+    }
+
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    // Average points scored by a playout, or 0 if none was made yet
+    public float getEstimate() {
+        return rollouts == 0 ? 0f : (float) (sum / rollouts);
+    }
+
+    // How far off the estimate is likely to be, which shrinks with more playouts
+    public float getStandardError() {
+        if (rollouts < 2)
+            return Float.POSITIVE_INFINITY;
+
+        final double mean = sum / rollouts;
+        final double variance = Math.max(0.0, (sumSquares - mean * sum) / (rollouts - 1));
+        return (float) Math.sqrt(variance / rollouts);
+    }
+
+    // Average amount of moves made by a playout
+    public float getAverageMoves() {
+        return rollouts == 0 ? 0f : (float) moves / rollouts;
+    }
+
+    //endregion
+}
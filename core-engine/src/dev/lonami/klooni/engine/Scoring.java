@@ -0,0 +1,74 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Keeps track of the score of a game, without anything related to displaying it.
+// The plain scoring is the one used by the classic mode, and other game modes
+// may add their own rules on top of it.
+public class Scoring {
+
+    //region Members
+
+    int currentScore;
+
+    //endregion
+
+    //region Static methods
+
+    // The original game seems to work as follows:
+    // If < 1 were cleared, score = 0
+    // If = 1  was cleared, score = cells cleared
+    // If > 1 were cleared, score = cells cleared + score(cleared - 1)
+    public static int calculateClearScore(int stripsCleared, int boardSize) {
+        if (stripsCleared < 1) return 0;
+        if (stripsCleared == 1) return boardSize;
+        else return boardSize * stripsCleared + calculateClearScore(stripsCleared - 1, boardSize);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Adds the score a given piece would give
+    public void addPieceScore(final int areaPut) {
+        currentScore += areaPut;
+    }
+
+    // Adds the score given by the board, this is, the count of cleared strips
+    public int addBoardScore(int stripsCleared, int boardSize) {
+        int score = calculateClearScore(stripsCleared, boardSize);
+        currentScore += score;
+        return score;
+    }
+
+    public int getCurrentScore() {
+        return currentScore;
+    }
+
+    // Used when restoring a saved game
+    public void setCurrentScore(int currentScore) {
+        this.currentScore = currentScore;
+    }
+
+    // Game modes may end the game on their own, regardless of the board
+    public boolean isGameOver() {
+        return false;
+    }
+
+    //endregion
+}
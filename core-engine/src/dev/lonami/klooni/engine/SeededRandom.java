@@ -0,0 +1,114 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import dev.lonami.klooni.serializer.BinSerializable;
+
+// Random generator owned by a single game, so that games can be reproduced
+// from their seed and simulations don't fight over a shared generator.
+//
+// It is a SplitMix64 generator, whose whole state is a single long. This
+// makes it cheap to save along the game, so that a resumed game continues
+// the very same sequence, and to split into independent streams.
+public class SeededRandom extends Random implements BinSerializable {
+
+    //region Members
+
+    private long seed;
+    private long state;
+
+    //endregion
+
+    //region Static members
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    //endregion
+
+    //region Constructor
+
+    public SeededRandom(long seed) {
+        super(seed);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Restarts the sequence from the given seed
+    @Override
+    public synchronized void setSeed(long seed) {
+        this.seed = seed;
+        state = seed;
+    }
+
+    // The seed this sequence started from
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return Zobrist.mix(state);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    // Where the sequence currently is, so it can be rewound to it later
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    // Returns a new generator whose sequence is unrelated to this one's,
+    // for instance to hand a separate stream to each simulated game
+    public SeededRandom split() {
+        return new SeededRandom(nextLong());
+    }
+
+    //endregion
+
+    //region Serialization
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        // seed, state
+        out.writeLong(seed);
+        out.writeLong(state);
+    }
+
+    @Override
+    public void read(DataInputStream in) throws IOException {
+        seed = in.readLong();
+        state = in.readLong();
+    }
+
+    //endregion
+}
@@ -0,0 +1,276 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+// The shape of a piece, which can be either rectangles (squares too)
+// or L shaped with any rotation. This is all the rules need to know
+// about a piece, while its position on screen belongs to the view.
+//
+// There is a single immutable instance per shape index, created once with
+// everything about it precomputed, so dealing shapes allocates nothing and
+// two shapes are the same if and only if they are the same instance.
+public class Shape {
+
+    //region Members
+
+    public final int colorIndex;
+    public final int rotation;
+
+    // Bounding box, in cells
+    public final int cellCols, cellRows;
+
+    // Bit j of rowMasks[i] is set iff the cell on row i and column j is filled
+    final long[] rowMasks;
+
+    // Amount of filled cells
+    public final int area;
+
+    // Average position of the filled cells, in cells from the top-left corner
+    public final float centerX, centerY;
+
+    // Identifies the shape (including its rotation) among every possible one
+    public final int shapeIndex;
+
+    //endregion
+
+    //region Static members
+
+    // 3 squares, 4 lines with 2 rotations and 2 L's with 4 rotations
+    public static final int SHAPE_COUNT = 3 + 4 * 2 + 2 * 4;
+
+    // Different shapes (and colors) that random can return
+    public static final int COLOR_COUNT = 9;
+
+    // Amount of rotations random can pick from, some of which are the same
+    private static final int ROTATE_COUNT = 5;
+
+    // Probability that random returns each of the shapes, indexed by shapeIndex
+    public static final float[] PROBABILITIES = new float[SHAPE_COUNT];
+
+    static {
+        for (int colorIndex = 0; colorIndex < COLOR_COUNT; ++colorIndex)
+            for (int rotateCount = 0; rotateCount < ROTATE_COUNT; ++rotateCount)
+                PROBABILITIES[shapeIndex(colorIndex, rotateCount)] += 1f / (COLOR_COUNT * ROTATE_COUNT);
+    }
+
+    // Every possible shape, indexed by shapeIndex
+    private static final Shape[] CATALOG = new Shape[SHAPE_COUNT];
+
+    static {
+        for (int colorIndex = 0; colorIndex < COLOR_COUNT; ++colorIndex)
+            for (int rotation = 0; rotation < 4; ++rotation)
+                if (CATALOG[shapeIndex(colorIndex, rotation)] == null)
+                    CATALOG[shapeIndex(colorIndex, rotation)] = create(colorIndex, rotation);
+    }
+
+    //endregion
+
+    //region Constructors
+
+    // Rectangle-shaped constructor
+    //
+    // If swapSize is true, the rows and columns will be swapped.
+    // colorIndex represents a random index that will be used
+    // to determine the color of this piece when drawn on the screen.
+    private Shape(int cols, int rows, int rotateSizeBy, int colorIndex) {
+        this.colorIndex = colorIndex;
+
+        rotation = rotateSizeBy % 2;
+        cellCols = rotation == 1 ? rows : cols;
+        cellRows = rotation == 1 ? cols : rows;
+
+        final boolean[][] shape = new boolean[cellRows][cellCols];
+        for (int i = 0; i < cellRows; ++i) {
+            for (int j = 0; j < cellCols; ++j) {
+                shape[i][j] = true;
+            }
+        }
+        rowMasks = calculateRowMasks(shape);
+        area = calculateArea();
+        centerX = calculateCenter(true);
+        centerY = calculateCenter(false);
+        shapeIndex = shapeIndex(colorIndex, rotation);
+    }
+
+    // L-shaped constructor
+    private Shape(int lSize, int rotateCount, int colorIndex) {
+        this.colorIndex = colorIndex;
+
+        cellCols = cellRows = lSize;
+        final boolean[][] shape = new boolean[lSize][lSize];
+
+        rotation = rotateCount % 4;
+        switch (rotation) {
+            case 0: // ┌
+                for (int j = 0; j < lSize; ++j)
+                    shape[0][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    shape[i][0] = true;
+                break;
+            case 1: // ┐
+                for (int j = 0; j < lSize; ++j)
+                    shape[0][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    shape[i][lSize - 1] = true;
+                break;
+            case 2: // ┘
+                for (int j = 0; j < lSize; ++j)
+                    shape[lSize - 1][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    shape[i][lSize - 1] = true;
+                break;
+            case 3: // └
+                for (int j = 0; j < lSize; ++j)
+                    shape[lSize - 1][j] = true;
+                for (int i = 0; i < lSize; ++i)
+                    shape[i][0] = true;
+                break;
+        }
+        rowMasks = calculateRowMasks(shape);
+        area = calculateArea();
+        centerX = calculateCenter(true);
+        centerY = calculateCenter(false);
+        shapeIndex = shapeIndex(colorIndex, rotation);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Packs the shape rows into bitmasks, so boards can test a whole row at once
+    private long[] calculateRowMasks(boolean[][] shape) {
+        final long[] masks = new long[cellRows];
+        for (int i = 0; i < cellRows; ++i)
+            for (int j = 0; j < cellCols; ++j)
+                if (shape[i][j])
+                    masks[i] |= 1L << j;
+
+        return masks;
+    }
+
+    private int calculateArea() {
+        int area = 0;
+        for (int i = 0; i < cellRows; ++i)
+            area += Long.bitCount(rowMasks[i]);
+
+        return area;
+    }
+
+    // Average column (or row, if 'horizontal' is false) of the filled cells
+    private float calculateCenter(boolean horizontal) {
+        int sum = 0;
+        for (int i = 0; i < cellRows; ++i)
+            for (int j = 0; j < cellCols; ++j)
+                if (filled(i, j))
+                    sum += horizontal ? j : i;
+
+        return (float) sum / area;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Generates a random shape with always the same color for the generated shape
+    public static Shape random(final Random random) {
+        // 9 pieces [0…8]; 4 possible rotations [0…3]
+        return fromIndex(random.nextInt(COLOR_COUNT), random.nextInt(ROTATE_COUNT));
+    }
+
+    // Maps the color index (which determines the shape) and its rotation to [0, SHAPE_COUNT)
+    public static int shapeIndex(int colorIndex, int rotation) {
+        if (colorIndex < 3)
+            return colorIndex;
+        if (colorIndex < 7)
+            return 3 + (colorIndex - 3) * 2 + rotation % 2;
+
+        return 11 + (colorIndex - 7) * 4 + rotation % 4;
+    }
+
+    // Returns the shape with the given color index and rotation from the catalog
+    public static Shape fromIndex(int colorIndex, int rotateCount) {
+        if (colorIndex < 0 || colorIndex >= COLOR_COUNT)
+            throw new RuntimeException("Random function is broken.");
+
+        return CATALOG[shapeIndex(colorIndex, rotateCount)];
+    }
+
+    // Returns the shape with the given index, in [0, SHAPE_COUNT)
+    public static Shape get(int shapeIndex) {
+        return CATALOG[shapeIndex];
+    }
+
+    private static Shape create(int colorIndex, int rotateCount) {
+        switch (colorIndex) {
+            // Squares
+            case 0:
+                return new Shape(1, 1, 0, colorIndex);
+            case 1:
+                return new Shape(2, 2, 0, colorIndex);
+            case 2:
+                return new Shape(3, 3, 0, colorIndex);
+
+            // Lines
+            case 3:
+                return new Shape(1, 2, rotateCount, colorIndex);
+            case 4:
+                return new Shape(1, 3, rotateCount, colorIndex);
+            case 5:
+                return new Shape(1, 4, rotateCount, colorIndex);
+            case 6:
+                return new Shape(1, 5, rotateCount, colorIndex);
+
+            // L's
+            case 7:
+                return new Shape(2, rotateCount, colorIndex);
+            case 8:
+                return new Shape(3, rotateCount, colorIndex);
+        }
+        throw new RuntimeException("Random function is broken.");
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Determines whether the shape is filled on the given row and column
+    public boolean filled(int i, int j) {
+        return (rowMasks[i] & (1L << j)) != 0;
+    }
+
+    //endregion
+
+    //region Serialization
+
+    public void write(DataOutputStream out) throws IOException {
+        // colorIndex, rotation
+        out.writeInt(colorIndex);
+        out.writeInt(rotation);
+    }
+
+    public static Shape read(DataInputStream in) throws IOException {
+        return fromIndex(in.readInt(), in.readInt());
+    }
+
+    //endregion
+}
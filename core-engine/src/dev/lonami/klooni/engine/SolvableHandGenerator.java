@@ -0,0 +1,80 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Random;
+
+// Deals random hands, but only those that can be put on the board in full.
+//
+// Hands are drawn until the hand solver finds an order that works. If the
+// budget runs out first, or no hand was found after enough attempts (because
+// the board is nearly full), whatever was drawn last is dealt.
+public class SolvableHandGenerator extends HandGenerator {
+
+    //region Members
+
+    private final HandSolver solver;
+    private final long budgetNanos;
+
+    //endregion
+
+    //region Static members
+
+    private static final int MAX_ATTEMPTS = 64;
+
+    //endregion
+
+    //region Constructor
+
+    public SolvableHandGenerator(int boardSize, int handCount, final Clock clock, long budgetNanos) {
+        super(clock);
+        solver = new HandSolver(boardSize, handCount, clock);
+        this.budgetNanos = budgetNanos;
+    }
+
+    //endregion
+
+    //region Protected methods
+
+    @Override
+    protected void generate(BitBoard board, Hand hand, Random random) {
+        final long deadline = clock.nanoTime() + budgetNanos;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+            hand.takeMore(random);
+            final long left = deadline - clock.nanoTime();
+            if (left <= 0) {
+                addFallback();
+                return;
+            }
+
+            final int result = solver.solve(board, hand, left);
+            addCandidate();
+            if (result == HandSolver.FEASIBLE)
+                return;
+
+            if (result == HandSolver.UNKNOWN) {
+                addFallback();
+                return;
+            }
+            addRejection();
+        }
+        addFallback();
+    }
+
+    //endregion
+}
@@ -0,0 +1,360 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Finds the best move for the current board and hand, to be shown as a hint.
+//
+// Every ordering and placement of the shapes on the hand is searched, with the
+// lines they clear applied between placements. Once the hand is exhausted the
+// position is valued by an expectation over the next random shape, weighted by
+// how likely Shape.random is to return it, plus how much room is left.
+//
+// The search deepens one placement at a time and stops as soon as the time
+// budget runs out, keeping the best move of the deepest completed iteration.
+// If not even the first placement could be searched everywhere, the best one
+// seen so far is kept, or any that fits, so running out of time is never
+// mistaken for the game being over.
+// Positions reached through different orderings are only searched once, by
+// keeping their values on a transposition table that outlives the search.
+// Every board and buffer is allocated up front, so searching allocates nothing.
+//
+// An Evaluator can value the positions instead, such as an exact table, in
+// which case the score gained on the way is left out of the search.
+public class Solver {
+
+    //region Members
+
+    private final Clock clock;
+    private final int size;
+    private final int handCount;
+
+    // Nodes searched between checks of the clock, fewer on bigger boards
+    private final int clockCheckInterval;
+
+    // Scratch board per search depth, boards[0] being a copy of the root
+    private final BitBoard[] boards;
+
+    // Legal anchors per search depth
+    private final int[][] anchors;
+
+    // The hand being searched and which of its slots are still unused
+    private final Shape[] shapes;
+    private int usedSlots;
+    private int remainingCount;
+    private long remainingKey;
+
+    private final TranspositionTable table;
+
+    // Values the positions the hand is exhausted on, null for the heuristic
+    private final Evaluator evaluator;
+
+    // Budget of the current search, and whether it ran out
+    private long deadline;
+    private boolean aborted;
+
+    // Set from any thread to stop the current search as soon as possible
+    private volatile boolean cancelled;
+
+    // Best move of the current iteration at the root
+    private int iterationSlot, iterationAnchor;
+    private float iterationValue;
+
+    // Results of the last search
+    private int bestSlot, bestAnchor;
+    private float bestValue;
+    private int depthReached;
+    private long nodes;
+    private long elapsedNanos;
+
+    //endregion
+
+    //region Static members
+
+    // Cells worth of nodes searched between checks of the clock. Each node
+    // copies and scans its board, and leaves try every shape on it, so a
+    // node on a big board costs about as much as many on a small one
+    private static final int CLOCK_CHECK_CELLS = 1024;
+
+    private static final float LOSS = -1e6f;
+    private static final float EMPTY_WEIGHT = 1f;
+    private static final float FIT_WEIGHT = 100f;
+
+    private static final int DEFAULT_TABLE_CAPACITY = 1 << 16;
+
+    //endregion
+
+    //region Constructor
+
+    public Solver(int size, int handCount, final Clock clock) {
+        this(size, handCount, clock, new TranspositionTable(DEFAULT_TABLE_CAPACITY));
+    }
+
+    public Solver(int size, int handCount, final Clock clock, final TranspositionTable table) {
+        this(size, handCount, clock, table, null);
+    }
+
+    public Solver(int size, int handCount, final Clock clock, final Evaluator evaluator) {
+        this(size, handCount, clock, new TranspositionTable(DEFAULT_TABLE_CAPACITY), evaluator);
+    }
+
+    private Solver(int size, int handCount, final Clock clock,
+                   final TranspositionTable table, final Evaluator evaluator) {
+        this.clock = clock;
+        this.table = table;
+        this.evaluator = evaluator;
+        this.size = size;
+        this.handCount = handCount;
+        clockCheckInterval = Math.max(1, CLOCK_CHECK_CELLS / (size * size));
+
+        boards = new BitBoard[handCount + 1];
+        anchors = new int[handCount + 1][size * size];
+        for (int i = 0; i <= handCount; ++i)
+            boards[i] = new BitBoard(size);
+
+        shapes = new Shape[handCount];
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Values a position once no more shapes will be put on this branch
+    private float evaluate(BitBoard board) {
+        // Expected probability that a random next shape fits somewhere
+        float fit = 0f;
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+            if (board.findPlacement(Shape.get(s)) >= 0)
+                fit += Shape.PROBABILITIES[s];
+
+        // The next hand has several shapes, all of which should fit
+        float handFit = 1f;
+        for (int i = 0; i < handCount; ++i)
+            handFit *= fit;
+
+        final int empty = size * size - board.getFilledCount();
+        return FIT_WEIGHT * handFit + EMPTY_WEIGHT * empty;
+    }
+
+    // Best value reachable from the board at the given depth, putting up to
+    // 'left' more shapes, where 'gained' is the score obtained on the way
+    private float search(int depth, int left, float gained) {
+        if (++nodes % clockCheckInterval == 0 && (cancelled || clock.nanoTime() > deadline))
+            aborted = true;
+        if (aborted)
+            return 0f;
+
+        final BitBoard board = boards[depth];
+
+        // What's left to search only depends on the board, the shapes left and
+        // how many of them may still be put, so the gained score is kept apart
+        final int searchDepth = Math.min(left, remainingCount);
+        long key = 0;
+        if (depth != 0) {
+            key = board.getHash() ^ Zobrist.mix(remainingKey);
+            final int entry = table.probe(key, searchDepth);
+            if (entry >= 0)
+                return gained + table.getValue(entry);
+        }
+
+        if (searchDepth == 0) {
+            final float value = evaluator == null ? evaluate(board) : evaluator.evaluate(board);
+            if (depth != 0)
+                table.store(key, 0, value);
+            return gained + value;
+        }
+
+        float best = Float.NEGATIVE_INFINITY;
+        final BitBoard child = boards[depth + 1];
+        final int[] found = anchors[depth];
+        for (int slot = 0; slot < shapes.length; ++slot) {
+            final Shape shape = shapes[slot];
+            if (shape == null || (usedSlots & (1 << slot)) != 0)
+                continue;
+
+            final int area = shape.area;
+            final int count = board.legalPlacements(shape, found);
+            for (int i = 0; i < count; ++i) {
+                final int x = found[i] % size, y = found[i] / size;
+                child.copyFrom(board);
+                child.put(shape, x, y);
+                final int cleared = child.findComplete();
+                child.clearComplete();
+
+                usedSlots |= 1 << slot;
+                remainingCount--;
+                remainingKey -= Zobrist.SHAPE_KEYS[shape.shapeIndex];
+                final float value = search(depth + 1, left - 1, evaluator != null ? gained
+                        : gained + area + Scoring.calculateClearScore(cleared, size));
+                remainingKey += Zobrist.SHAPE_KEYS[shape.shapeIndex];
+                remainingCount++;
+                usedSlots &= ~(1 << slot);
+
+                if (aborted)
+                    return 0f;
+
+                if (value > best) {
+                    best = value;
+                    if (depth == 0) {
+                        iterationSlot = slot;
+                        iterationAnchor = found[i];
+                        iterationValue = value;
+                    }
+                }
+            }
+        }
+
+        // None of the shapes left fit, the game would be over here
+        if (best == Float.NEGATIVE_INFINITY)
+            best = LOSS + gained;
+
+        if (depth != 0)
+            table.store(key, searchDepth, best - gained);
+
+        return best;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Searches the best move for the given position within the given budget.
+    // Returns false if no shape on the hand fits, which means it's game over.
+    // A move is always found otherwise, even if the budget ran out before the
+    // first placement was searched, in which case the depth reached is 0
+    public boolean solve(BitBoard board, Hand hand, long budgetNanos) {
+        final long start = clock.nanoTime();
+        deadline = start + budgetNanos;
+        aborted = false;
+        nodes = 0;
+        depthReached = 0;
+        bestSlot = bestAnchor = -1;
+        bestValue = LOSS;
+
+        boards[0].copyFrom(board);
+        int shapeCount = 0;
+        for (int i = 0; i < shapes.length; ++i) {
+            shapes[i] = i < hand.getCount() ? hand.get(i) : null;
+            if (shapes[i] != null)
+                shapeCount++;
+        }
+        usedSlots = 0;
+        remainingCount = shapeCount;
+        remainingKey = Zobrist.handKey(shapes);
+        table.nextSearch();
+
+        // Iterative deepening, so that there's always some result in time
+        for (int depth = 1; depth <= shapeCount; ++depth) {
+            iterationSlot = iterationAnchor = -1;
+            search(0, depth, 0f);
+            if (aborted)
+                break;
+
+            depthReached = depth;
+            bestSlot = iterationSlot;
+            bestAnchor = iterationAnchor;
+            bestValue = iterationValue;
+            if (bestSlot < 0)
+                break;
+        }
+
+        if (bestSlot < 0 && aborted) {
+            if (iterationSlot >= 0) {
+                bestSlot = iterationSlot;
+                bestAnchor = iterationAnchor;
+                bestValue = iterationValue;
+            } else {
+                for (int slot = 0; slot < shapes.length && bestSlot < 0; ++slot) {
+                    if (shapes[slot] != null) {
+                        bestAnchor = boards[0].findPlacement(shapes[slot]);
+                        if (bestAnchor >= 0)
+                            bestSlot = slot;
+                    }
+                }
+            }
+        }
+
+        elapsedNanos = clock.nanoTime() - start;
+        return bestSlot >= 0;
+    }
+
+    // While cancelled, searches stop as soon as possible as if their budget ran
+    // out (keeping the deepest result they completed). Safe to call from any thread
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    // Whether the last search went through every shape on the hand
+    public boolean isComplete() {
+        return !aborted;
+    }
+
+    // Hand slot of the best move
+    public int getBestSlot() {
+        return bestSlot;
+    }
+
+    // Anchor of the best move
+    public int getBestX() {
+        return bestAnchor % size;
+    }
+
+    public int getBestY() {
+        return bestAnchor / size;
+    }
+
+    // How good the position is after the best move, higher is better
+    public float getEvaluation() {
+        return bestValue;
+    }
+
+    //endregion
+
+    //region Statistics
+
+    // Amount of placements the search went through to complete
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    //endregion
+
+    //region Sub-classes
+
+    // Values a position once no more shapes will be put on a branch, higher being better
+    public interface Evaluator {
+        float evaluate(BitBoard board);
+    }
+
+    //endregion
+}
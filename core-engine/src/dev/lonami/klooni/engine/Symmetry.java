@@ -0,0 +1,331 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// The 8 symmetries of a square board (4 rotations, each of them mirrored or
+// not), used to treat positions that are rotations or mirror images of each
+// other as the same one.
+//
+// Every shape a piece can have is mapped to another shape under any of them,
+// so a board and a hand can be transformed as a whole, and so can the moves
+// made on them. Which moves are possible (and which lines they clear) is the
+// same on every transformed position, so anything that only depends on that
+// can be cached by the canonical form and shared by all 8 of them.
+//
+// Transform t transposes the cells if (t & TRANSPOSE) != 0, and then mirrors
+// them horizontally and vertically if (t & MIRROR_X) and (t & MIRROR_Y) are set.
+//
+// The cell mapping is precomputed per board size. The canonical key methods
+// use scratch space, so every searcher should have its own instance. Boards
+// up to 8x8 can also be transformed packed in a long (bit y * size + x).
+public class Symmetry {
+
+    //region Members
+
+    public final int size;
+
+    // Per transform, the key of the cell every cell goes to
+    private final long[][] keyMaps;
+
+    // Hash of the board under every transform, scratch space for canonicalKey
+    private final long[] hashes;
+
+    // Per transform and byte of a packed board, the bits its cells go to.
+    // Only built once a packed board is first transformed
+    private long[][][] packedMaps;
+
+    // Transform that gave the last canonical form
+    private int transform;
+
+    //endregion
+
+    //region Static members
+
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    public static final int MIRROR_X = 1;
+    public static final int MIRROR_Y = 2;
+    public static final int TRANSPOSE = 4;
+
+    // Boards that fit packed in a long
+    public static final int MAX_PACKED_SIZE = 8;
+
+    // Per transform, the index of the shape every shape goes to
+    private static final int[][] SHAPE_MAPS = new int[COUNT][Shape.SHAPE_COUNT];
+
+    static {
+        for (int t = 0; t < COUNT; ++t)
+            for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+                SHAPE_MAPS[t][s] = findTransformed(Shape.get(s), t).shapeIndex;
+    }
+
+    //endregion
+
+    //region Constructor
+
+    public Symmetry(int size) {
+        this.size = size;
+        final long[] keys = Zobrist.cellKeys(size * size);
+        keyMaps = new long[COUNT][size * size];
+        for (int t = 0; t < COUNT; ++t)
+            for (int i = 0; i < size * size; ++i)
+                keyMaps[t][i] = keys[transformCell(i, t)];
+
+        hashes = new long[COUNT];
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Finds the shape on the catalog with the cells of the given one transformed
+    private static Shape findTransformed(Shape shape, int t) {
+        final boolean transpose = (t & TRANSPOSE) != 0;
+        final int cols = transpose ? shape.cellRows : shape.cellCols;
+        final int rows = transpose ? shape.cellCols : shape.cellRows;
+
+        final long[] masks = new long[rows];
+        for (int i = 0; i < shape.cellRows; ++i) {
+            for (int j = 0; j < shape.cellCols; ++j) {
+                if (shape.filled(i, j)) {
+                    int x = transpose ? i : j;
+                    int y = transpose ? j : i;
+                    if ((t & MIRROR_X) != 0) x = cols - 1 - x;
+                    if ((t & MIRROR_Y) != 0) y = rows - 1 - y;
+                    masks[y] |= 1L << x;
+                }
+            }
+        }
+
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            final Shape other = Shape.get(s);
+            if (other.colorIndex != shape.colorIndex || other.cellCols != cols || other.cellRows != rows)
+                continue;
+
+            boolean same = true;
+            for (int i = 0; i < rows && same; ++i)
+                same = other.rowMasks[i] == masks[i];
+
+            if (same)
+                return other;
+        }
+        throw new RuntimeException("The shapes are not closed under the symmetries of the square");
+    }
+
+    // Compares the board under two transforms, from the last cell to the first
+    private int compare(BitBoard board, int a, int b) {
+        for (int i = size * size - 1; i >= 0; --i) {
+            final int ca = transformCell(i, inverse(a));
+            final int cb = transformCell(i, inverse(b));
+            final boolean fa = board.isEmpty(ca % size, ca / size);
+            final boolean fb = board.isEmpty(cb % size, cb / size);
+            if (fa != fb)
+                return fa ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private void buildPackedMaps() {
+        final int bytes = (size * size + 7) / 8;
+        packedMaps = new long[COUNT][bytes][256];
+        final long[] bits = new long[bytes * 8];
+        for (int t = 0; t < COUNT; ++t) {
+            for (int i = 0; i < size * size; ++i)
+                bits[i] = 1L << transformCell(i, t);
+
+            // Every byte is the one without its lowest bit, plus where that bit goes
+            for (int b = 0; b < bytes; ++b)
+                for (int value = 1; value < 256; ++value)
+                    packedMaps[t][b][value] = packedMaps[t][b][value & (value - 1)]
+                            | bits[b * 8 + Integer.numberOfTrailingZeros(value)];
+        }
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // The transform that undoes the given one
+    public static int inverse(int t) {
+        // Mirroring after transposing is the same as transposing
+        // after mirroring the other axis, so the mirrors swap
+        if ((t & TRANSPOSE) == 0)
+            return t;
+
+        return TRANSPOSE | ((t & MIRROR_X) << 1) | ((t & MIRROR_Y) >> 1);
+    }
+
+    public static Shape transform(Shape shape, int t) {
+        return Shape.get(SHAPE_MAPS[t][shape.shapeIndex]);
+    }
+
+    // Zobrist key of the shape once transformed, to be summed like Zobrist.handKey
+    public static long shapeKey(Shape shape, int t) {
+        return Zobrist.SHAPE_KEYS[SHAPE_MAPS[t][shape.shapeIndex]];
+    }
+
+    // Zobrist.handKey of the shapes once transformed, for every transform
+    public static void handKeys(Shape[] shapes, long[] keys) {
+        for (int t = 0; t < COUNT; ++t) {
+            keys[t] = 0;
+            for (int i = 0; i < shapes.length; ++i)
+                if (shapes[i] != null)
+                    keys[t] += shapeKey(shapes[i], t);
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // The cell (as y * size + x) the given cell goes to
+    public int transformCell(int index, int t) {
+        int x = index % size, y = index / size;
+        if ((t & TRANSPOSE) != 0) {
+            final int swap = x;
+            x = y;
+            y = swap;
+        }
+        if ((t & MIRROR_X) != 0) x = size - 1 - x;
+        if ((t & MIRROR_Y) != 0) y = size - 1 - y;
+        return y * size + x;
+    }
+
+    // The anchor (as y * size + x) where the transformed shape goes when the
+    // shape is put at the given anchor, so the move can be made on the
+    // transformed board. Use the inverse transform to map a move back
+    public int transformAnchor(Shape shape, int x, int y, int t) {
+        final int a = transformCell(y * size + x, t);
+        final int b = transformCell((y + shape.cellRows - 1) * size + x + shape.cellCols - 1, t);
+        return Math.min(a / size, b / size) * size + Math.min(a % size, b % size);
+    }
+
+    // Makes the destination board the source one transformed, colors included
+    public void transform(BitBoard source, BitBoard destination, int t) {
+        destination.clear();
+        for (int i = 0; i < size * size; ++i) {
+            final int color = source.getColor(i % size, i / size);
+            if (color >= 0) {
+                final int j = transformCell(i, t);
+                destination.set(j % size, j / size, color);
+            }
+        }
+    }
+
+    // Transforms every shape of the source into the destination, which may be the same array
+    public static void transform(Shape[] source, Shape[] destination, int t) {
+        for (int i = 0; i < source.length; ++i)
+            destination[i] = source[i] == null ? null : transform(source[i], t);
+    }
+
+    // Zobrist hash of the board once transformed
+    public long hash(BitBoard board, int t) {
+        if (t == IDENTITY)
+            return board.getHash();
+
+        final long[] keyMap = keyMaps[t];
+        long hash = 0;
+        for (int w = 0; w < board.getWordCount(); ++w)
+            for (long word = board.getWord(w); word != 0; word &= word - 1)
+                hash ^= keyMap[(w << 6) + Long.numberOfTrailingZeros(word)];
+
+        return hash;
+    }
+
+    // Key of the board and the shapes left (given as their key under every
+    // transform, see handKeys) that is the same for all 8 transforms of the
+    // position, being the smallest of their keys. getTransform tells which
+    // transform gave it. The filled cells are only walked once for all of them
+    public long canonicalKey(BitBoard board, long[] handKeys) {
+        for (int t = 1; t < COUNT; ++t)
+            hashes[t] = 0;
+
+        for (int w = 0; w < board.getWordCount(); ++w) {
+            for (long word = board.getWord(w); word != 0; word &= word - 1) {
+                final int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                for (int t = 1; t < COUNT; ++t)
+                    hashes[t] ^= keyMaps[t][i];
+            }
+        }
+        hashes[IDENTITY] = board.getHash();
+
+        long best = 0;
+        transform = -1;
+        for (int t = 0; t < COUNT; ++t) {
+            final long key = hashes[t] ^ Zobrist.mix(handKeys[t]);
+            if (transform < 0 || key < best) {
+                best = key;
+                transform = t;
+            }
+        }
+        return best;
+    }
+
+    // The packed board (bit y * size + x) once transformed. Only for boards up to 8x8
+    public long transform(long cells, int t) {
+        if (packedMaps == null) {
+            if (size > MAX_PACKED_SIZE)
+                throw new IllegalStateException("Only boards up to 8x8 can be packed");
+            buildPackedMaps();
+        }
+
+        final long[][] maps = packedMaps[t];
+        long result = 0;
+        for (int b = 0; cells != 0; ++b, cells >>>= 8)
+            result |= maps[b][(int) cells & 0xFF];
+
+        return result;
+    }
+
+    // The smallest of the 8 transforms of the packed board, comparing them as
+    // unsigned numbers, which is exact like canonicalTransform. getTransform
+    // tells which transform gave it
+    public long canonicalCells(long cells) {
+        long best = 0;
+        transform = -1;
+        for (int t = 0; t < COUNT; ++t) {
+            final long transformed = transform(cells, t);
+            if (transform < 0 || transformed + Long.MIN_VALUE < best + Long.MIN_VALUE) {
+                best = transformed;
+                transform = t;
+            }
+        }
+        return best;
+    }
+
+    // Transform that turned the position into its canonical form on the last
+    // canonicalKey or canonicalCells
+    public int getTransform() {
+        return transform;
+    }
+
+    // The transform giving the smallest board of all 8, comparing the cells in
+    // row-major order as a binary number. Unlike canonicalKey this is exact, and
+    // equal boards up to symmetry have the same transformed cells and not just hash
+    public int canonicalTransform(BitBoard board) {
+        int best = IDENTITY;
+        for (int t = 1; t < COUNT; ++t)
+            if (compare(board, t, best) < 0)
+                best = t;
+
+        return best;
+    }
+
+    //endregion
+}
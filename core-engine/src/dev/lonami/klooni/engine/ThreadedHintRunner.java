@@ -0,0 +1,44 @@
+
+package dev.lonami.klooni.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Runs every hint service on its own low priority daemon thread, which sleeps
+// until there's a new request. Left out of the web build, which has no threads.
+public class ThreadedHintRunner implements HintRunner {
+
+    //region Static members
+
+    // A single search may take this long, unless a new request cancels it
+    private static final long SEARCH_BUDGET_NANOS = 500000000L;
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public void start(final HintService service) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!service.isDisposed()) {
+                    if (!service.work(SEARCH_BUDGET_NANOS))
+                        LockSupport.park(service);
+                }
+            }
+        }, "hints");
+
+        service.setWakeUp(new Runnable() {
+            @Override
+            public void run() {
+                LockSupport.unpark(thread);
+            }
+        });
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    //endregion
+}
@@ -0,0 +1,128 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Scoring of the time mode, where the game is over once the time is up.
+// Clearing strips adds extra time proportional to the score they give.
+public class TimeScoring extends Scoring {
+
+    //region Members
+
+    private final Clock clock;
+
+    private long startTime;
+
+    // Indicates where we would die in time. Score adds to this, so we take
+    // longer to die. To get the "score" we simply calculate `deadTime - startTime`
+    private long deadTime;
+
+    // We need to know when the game was paused to "stop" counting
+    private long pauseTime;
+    private int pausedTimeLeft;
+
+    //endregion
+
+    //region Static variables
+
+    private static final long START_TIME = 30 * 1000000000L;
+
+    // 2 seconds every 10 points: (2/10)*10^9 to get the nanoseconds
+    private static final double SCORE_TO_NANOS = 0.2e+09d;
+    private static final double NANOS_TO_SECONDS = 1e-09d;
+
+    //endregion
+
+    //region Constructor
+
+    public TimeScoring(final Clock clock) {
+        this.clock = clock;
+        startTime = clock.nanoTime();
+        deadTime = startTime + START_TIME;
+
+        pausedTimeLeft = -1;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static int nanosToSeconds(long nano) {
+        return (int) Math.ceil(nano * NANOS_TO_SECONDS);
+    }
+
+    private static long scoreToNanos(int score) {
+        return (long) (score * SCORE_TO_NANOS);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Returns the extra seconds given, rather than the score
+    @Override
+    public int addBoardScore(int stripsCleared, int boardSize) {
+        // Only clearing strips adds extra time
+        long extraTime = scoreToNanos(calculateClearScore(stripsCleared, boardSize));
+        deadTime += extraTime;
+        super.addBoardScore(stripsCleared, boardSize);
+
+        return nanosToSeconds(extraTime);
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return clock.nanoTime() > deadTime;
+    }
+
+    // Seconds left until the game is over, which don't go down while paused
+    public int getTimeLeft() {
+        if (pausedTimeLeft >= 0)
+            return pausedTimeLeft;
+
+        return Math.max(nanosToSeconds(deadTime - clock.nanoTime()), 0);
+    }
+
+    public void pause() {
+        pauseTime = clock.nanoTime();
+        pausedTimeLeft = getTimeLeft();
+    }
+
+    public void resume() {
+        if (pauseTime != 0L) {
+            long difference = clock.nanoTime() - pauseTime;
+            startTime += difference;
+            deadTime += difference;
+
+            pauseTime = 0L;
+            pausedTimeLeft = -1;
+        }
+    }
+
+    // How long the game has been going for, used when saving
+    public long getElapsedTime() {
+        return clock.nanoTime() - startTime;
+    }
+
+    // We need to use the offset, since the start time
+    // is different and we couldn't save absolute values
+    public void setDeadOffset(long deadOffset) {
+        deadTime = startTime + deadOffset;
+    }
+
+    //endregion
+}
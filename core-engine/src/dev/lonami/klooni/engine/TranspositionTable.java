@@ -0,0 +1,162 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import java.util.Arrays;
+
+// Fixed-size hash table with the values of positions that were already searched,
+// so that the same position reached through a different ordering (or on a later
+// frame) doesn't need to be searched again.
+//
+// Entries live on parallel primitive arrays indexed by the low bits of the key,
+// and the full key is stored to tell collisions apart. When two positions land
+// on the same entry, the one searched deeper wins, unless the entry is left over
+// from an older search, in which case it's always replaced.
+public class TranspositionTable {
+
+    //region Members
+
+    private final int mask;
+
+    private final long[] keys;
+    private final float[] values;
+    private final byte[] depths; // Negative if the entry is empty
+    private final byte[] ages;
+
+    // Current search generation, so entries from older searches can be told apart
+    private byte age;
+
+    // Statistics, to size the table per platform
+    private long probes;
+    private long hits;
+    private long stores;
+    private long overwrites;
+    private int occupied;
+
+    //endregion
+
+    //region Constructor
+
+    // The capacity is rounded up to a power of two
+    public TranspositionTable(int capacity) {
+        int size = 1;
+        while (size < capacity)
+            size <<= 1;
+
+        mask = size - 1;
+        keys = new long[size];
+        values = new float[size];
+        depths = new byte[size];
+        ages = new byte[size];
+        clear();
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Returns the entry with the given key if it was searched at least as deep
+    // as the given depth, or -1 otherwise
+    public int probe(long key, int depth) {
+        probes++;
+        final int i = (int) key & mask;
+        if (depths[i] >= depth && keys[i] == key) {
+            hits++;
+            return i;
+        }
+        return -1;
+    }
+
+    public float getValue(int entry) {
+        return values[entry];
+    }
+
+    // Stores the value of a position searched to the given depth
+    public void store(long key, int depth, float value) {
+        final int i = (int) key & mask;
+        if (depths[i] < 0) {
+            occupied++;
+        } else if (keys[i] != key) {
+            if (ages[i] == age && depths[i] > depth)
+                return;
+
+            overwrites++;
+        }
+
+        stores++;
+        keys[i] = key;
+        values[i] = value;
+        depths[i] = (byte) depth;
+        ages[i] = age;
+    }
+
+    // Marks the start of a new search, so that entries from older ones
+    // can be replaced first. They are still looked up in the meantime
+    public void nextSearch() {
+        age++;
+    }
+
+    // Forgets every entry, but not the statistics
+    public void clear() {
+        Arrays.fill(depths, (byte) -1);
+        occupied = 0;
+    }
+
+    //endregion
+
+    //region Statistics
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public int getOccupied() {
+        return occupied;
+    }
+
+    public float getOccupancy() {
+        return (float) occupied / keys.length;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public float getHitRate() {
+        return probes == 0 ? 0f : (float) hits / probes;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    // How many stores replaced a different position
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    public void resetStatistics() {
+        probes = hits = stores = overwrites = 0;
+    }
+
+    //endregion
+}
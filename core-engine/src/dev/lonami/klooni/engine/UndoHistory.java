@@ -0,0 +1,117 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Multi-level undo and redo over the snapshots of a game.
+//
+// The history keeps up to a given amount of snapshots, forgetting the oldest
+// ones once it's full. Recording a new snapshot after going back forgets the
+// snapshots that could have been redone, like any text editor does.
+public class UndoHistory {
+
+    //region Members
+
+    // Circular buffer, where the snapshot at 'current' is the game as it is now
+    private final GameSnapshot[] snapshots;
+    private int first;
+    private int count;
+    private int current;
+
+    //endregion
+
+    //region Constructor
+
+    // The capacity counts the current snapshot, so capacity - 1 moves can be undone
+    public UndoHistory(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The history must have room for one snapshot");
+
+        snapshots = new GameSnapshot[capacity];
+        clear();
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private GameSnapshot at(int position) {
+        return snapshots[(first + position) % snapshots.length];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Records the snapshot as the current state, forgetting about any that could be redone
+    public void record(GameSnapshot snapshot) {
+        for (int i = current + 1; i < count; ++i)
+            snapshots[(first + i) % snapshots.length] = null;
+
+        count = current + 1;
+        if (count == snapshots.length) {
+            snapshots[first] = null;
+            first = (first + 1) % snapshots.length;
+            count--;
+        }
+
+        snapshots[(first + count) % snapshots.length] = snapshot;
+        current = count++;
+    }
+
+    // The snapshot of the state as it is now, or null if nothing was recorded
+    public GameSnapshot getCurrent() {
+        return current < 0 ? null : at(current);
+    }
+
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    public boolean canRedo() {
+        return current + 1 < count;
+    }
+
+    // Goes back one snapshot and returns it, to be restored, or null if there's none
+    public GameSnapshot undo() {
+        return canUndo() ? at(--current) : null;
+    }
+
+    // Goes forward one snapshot and returns it, to be restored, or null if there's none
+    public GameSnapshot redo() {
+        return canRedo() ? at(++current) : null;
+    }
+
+    // Amount of snapshots that can be undone and redone respectively
+    public int getUndoCount() {
+        return Math.max(current, 0);
+    }
+
+    public int getRedoCount() {
+        return count - current - 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i < snapshots.length; ++i)
+            snapshots[i] = null;
+
+        first = count = 0;
+        current = -1;
+    }
+
+    //endregion
+}
@@ -0,0 +1,87 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+// Random keys for Zobrist hashing of boards and hands.
+//
+// A board hash is the XOR of the keys of its filled cells, so putting or
+// clearing a cell updates it with a single XOR, and any two orderings that
+// end up filling the same cells get the same hash. Colors are left out on
+// purpose, since they don't change which moves are possible.
+//
+// Keys are derived from their index with a fixed mix, so they are the same
+// on every run and every platform, and can be shared by all boards.
+public final class Zobrist {
+
+    //region Static members
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static long[] cellKeys = new long[0];
+
+    // Keys per shape index, summed (not XORed) so repeated shapes don't cancel out
+    public static final long[] SHAPE_KEYS = new long[Shape.SHAPE_COUNT];
+
+    static {
+        for (int i = 0; i < SHAPE_KEYS.length; ++i)
+            SHAPE_KEYS[i] = mix(~(i + 1) * GOLDEN_GAMMA);
+    }
+
+    //endregion
+
+    //region Constructor
+
+    private Zobrist() {
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // SplitMix64 finalizer, spreads every input bit over the whole output
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Returns the keys for at least the given amount of cells. The array is
+    // shared and must not be modified. Growing it only appends new keys
+    public static synchronized long[] cellKeys(int count) {
+        if (cellKeys.length < count) {
+            final long[] keys = new long[count];
+            for (int i = 0; i < count; ++i)
+                keys[i] = mix((i + 1) * GOLDEN_GAMMA);
+
+            cellKeys = keys;
+        }
+        return cellKeys;
+    }
+
+    // Hash of the shapes on a hand, which doesn't depend on their order
+    public static long handKey(Shape[] shapes) {
+        long key = 0;
+        for (int i = 0; i < shapes.length; ++i)
+            if (shapes[i] != null)
+                key += SHAPE_KEYS[shapes[i].shapeIndex];
+
+        return key;
+    }
+
+    //endregion
+}
@@ -31,7 +31,7 @@ public class BinSerializer {
 
     // MODIFY THIS VALUE EVERY TIME A BinSerializable IMPLEMENTATION CHANGES
     // Or unwanted results will happen and corrupt the game in an unknown way.
-    private final static int VERSION = 2;
+    private final static int VERSION = 3;
 
     public static void serialize(final BinSerializable serializable, final OutputStream output)
             throws IOException {
@@ -50,9 +50,22 @@ public class BinSerializer {
 
     public static void deserialize(final BinSerializable serializable, final InputStream input)
             throws IOException {
+        DataInputStream in = open(input);
+        try {
+            serializable.read(in);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Checks the HEADER and the VERSION, and leaves the stream where the saved data starts.
+    // The caller is the one who must close it, unless this throws
+    public static DataInputStream open(final InputStream input) throws IOException {
         DataInputStream in = new DataInputStream(input);
         try {
-            // Read the HEADER and the VERSION (checks)
             byte[] savedBuffer = new byte[HEADER.length];
             in.readFully(savedBuffer);
             if (!Arrays.equals(savedBuffer, HEADER))
@@ -63,14 +76,13 @@ public class BinSerializer {
                 throw new IOException(
                         "Invalid saved version found. Should be " + VERSION + ", not " + savedVersion);
             }
-
-            // Read the saved data if the checks passed
-            serializable.read(in);
-        } finally {
+            return in;
+        } catch (IOException e) {
             try {
                 in.close();
             } catch (IOException ignored) {
             }
+            throw e;
         }
     }
 }
@@ -0,0 +1,166 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Compares the incrementally kept features against a flood fill and a scan of
+// every anchor, done from scratch after random puts, clears and single cell changes
+public class BoardFeaturesTest {
+
+    private static final int[] SIZES = {1, 2, 5, 8, 10, 16, 33, 63, 64, 65, 128};
+
+    @Test
+    public void agreesWithFloodFillOnRandomSteps() {
+        for (int size : SIZES) {
+            final int steps = size > 64 ? 100 : size > 32 ? 500 : 3000;
+            for (long seed = 1; seed <= 3; ++seed)
+                run(size, seed, steps);
+        }
+    }
+
+    private static void run(final int size, final long seed, final int steps) {
+        final SeededRandom random = new SeededRandom(seed * 131 + size);
+        final BitBoard board = new BitBoard(size);
+        final BoardFeatures features = new BoardFeatures(board);
+        final int[] anchors = new int[size * size];
+
+        for (int step = 0; step < steps; ++step) {
+            final int action = random.nextInt(100);
+            if (action < 70) {
+                final Shape shape = Shape.random(random);
+                final int count = board.legalPlacements(shape, anchors);
+                if (count != 0) {
+                    final int anchor = anchors[random.nextInt(count)];
+                    board.put(shape, anchor % size, anchor / size);
+                    if (board.findComplete() > 0)
+                        board.clearComplete();
+                } else {
+                    board.clear();
+                }
+            } else if (action < 85) {
+                board.set(random.nextInt(size), random.nextInt(size), -1);
+            } else if (action < 97) {
+                board.set(random.nextInt(size), random.nextInt(size), random.nextInt(Shape.COLOR_COUNT));
+            } else {
+                board.clear();
+            }
+
+            // Several changes may pile up before the features are looked at
+            if (random.nextInt(4) != 0) {
+                features.update();
+                check(board, features, "size " + size + ", seed " + seed + ", step " + step);
+            }
+        }
+    }
+
+    private static void check(final BitBoard board, final BoardFeatures features, final String at) {
+        final int size = board.size;
+        final int[] labels = new int[size * size];
+        final int[] regionSizes = new int[size * size];
+        final int regions = floodFill(board, labels, regionSizes);
+
+        assertEquals(at, regions, features.getRegionCount());
+
+        final int[] histogram = new int[BoardFeatures.HISTOGRAM_SIZE];
+        for (int r = 0; r < regions; ++r)
+            histogram[Math.min(regionSizes[r], BoardFeatures.HISTOGRAM_SIZE) - 1]++;
+
+        for (int cells = 1; cells <= BoardFeatures.HISTOGRAM_SIZE; ++cells)
+            assertEquals(at + ", regions of " + cells, histogram[cells - 1], features.getRegionsOfSize(cells));
+
+        assertEquals(at, histogram[0], features.getHoleCount());
+
+        // Both labellings must split the cells the same way, which
+        // happens iff they map one to one on every cell
+        final int[] toFeature = new int[regions];
+        final int[] toFlood = new int[size * size + 1];
+        java.util.Arrays.fill(toFeature, -1);
+        java.util.Arrays.fill(toFlood, -1);
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                final int expected = labels[y * size + x];
+                final int actual = features.getRegion(x, y);
+                if (expected == -1) {
+                    assertEquals(at + ", filled cell " + x + "," + y, -1, actual);
+                    continue;
+                }
+
+                assertTrue(at + ", empty cell " + x + "," + y, actual >= 0);
+                if (toFeature[expected] == -1 && toFlood[actual] == -1) {
+                    toFeature[expected] = actual;
+                    toFlood[actual] = expected;
+                }
+                assertEquals(at + ", region of " + x + "," + y, toFeature[expected], actual);
+                assertEquals(at + ", region of " + x + "," + y, toFlood[actual], expected);
+            }
+        }
+
+        for (int i = 0; i < Shape.SHAPE_COUNT; ++i) {
+            final Shape shape = Shape.get(i);
+            int count = 0;
+            for (int y = 0; y + shape.cellRows <= size; ++y)
+                for (int x = 0; x + shape.cellCols <= size; ++x)
+                    if (FeasibilityCacheTest.fitsByCells(board, shape, x, y))
+                        count++;
+
+            assertEquals(at + ", placements of shape " + i, count, features.getPlacementCount(shape));
+        }
+    }
+
+    // Labels every empty cell with its region, and returns how many there are
+    private static int floodFill(final BitBoard board, final int[] labels, final int[] regionSizes) {
+        final int size = board.size;
+        final int[] stack = new int[size * size];
+        java.util.Arrays.fill(labels, -1);
+
+        int regions = 0;
+        for (int start = 0; start < labels.length; ++start) {
+            if (labels[start] != -1 || !board.isEmpty(start % size, start / size))
+                continue;
+
+            int top = 0;
+            stack[top++] = start;
+            labels[start] = regions;
+            while (top != 0) {
+                final int index = stack[--top];
+                final int x = index % size, y = index / size;
+                regionSizes[regions]++;
+                if (x > 0) top = visit(board, labels, stack, top, x - 1, y, regions);
+                if (x < size - 1) top = visit(board, labels, stack, top, x + 1, y, regions);
+                if (y > 0) top = visit(board, labels, stack, top, x, y - 1, regions);
+                if (y < size - 1) top = visit(board, labels, stack, top, x, y + 1, regions);
+            }
+            regions++;
+        }
+        return regions;
+    }
+
+    private static int visit(final BitBoard board, final int[] labels, final int[] stack,
+                             int top, final int x, final int y, final int region) {
+        final int index = y * board.size + x;
+        if (labels[index] == -1 && board.isEmpty(x, y)) {
+            labels[index] = region;
+            stack[top++] = index;
+        }
+        return top;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// Plays seeded random games with the cache on its exhaustive verification mode,
+// which throws as soon as a cached answer differs from a full scan of the board
+public class FeasibilityCacheTest {
+
+    private static final int[] SIZES = {1, 5, 10, 33, 64, 65, 128};
+    private static final int STEPS = 2000;
+
+    @Test
+    public void agreesWithFullScanOnRandomGames() {
+        for (int size : SIZES)
+            for (long seed = 1; seed <= 3; ++seed)
+                play(size, seed);
+    }
+
+    private static void play(final int size, final long seed) {
+        final SeededRandom random = new SeededRandom(seed * 31 + size);
+        final BitBoard board = new BitBoard(size);
+        final Hand hand = new Hand(3);
+        final FeasibilityCache cache = new FeasibilityCache(board, hand);
+        cache.setVerify(true);
+
+        final int[] anchors = new int[size * size];
+        BoardSnapshot saved = BoardSnapshot.take(board);
+        hand.takeMore(random);
+
+        for (int step = 0; step < STEPS; ++step) {
+            final int action = random.nextInt(100);
+            if (action < 75) {
+                // Put a shape from the hand, and clear what it completes
+                final int slot = random.nextInt(hand.getCount());
+                final Shape shape = hand.get(slot);
+                if (shape != null) {
+                    final int count = board.legalPlacements(shape, anchors);
+                    if (count != 0) {
+                        final int anchor = anchors[random.nextInt(count)];
+                        board.put(shape, anchor % size, anchor / size);
+                        hand.remove(slot);
+                        if (board.findComplete() > 0)
+                            board.clearComplete();
+                        if (hand.isFinished())
+                            hand.takeMore(random);
+                    }
+                }
+            } else if (action < 87) {
+                board.set(random.nextInt(size), random.nextInt(size), -1);
+            } else if (action < 92) {
+                board.set(random.nextInt(size), random.nextInt(size), random.nextInt(Shape.COLOR_COUNT));
+            } else if (action < 94) {
+                board.clear();
+            } else if (action < 97) {
+                saved = BoardSnapshot.take(board, saved);
+            } else {
+                // Going back to a snapshot is like loading a save, the cache must be told
+                saved.restore(board);
+                cache.invalidate();
+            }
+
+            assertEquals("size " + size + ", seed " + seed + ", step " + step,
+                    anyFitsByScan(board, hand), cache.anyFits());
+
+            if (!cache.anyFits()) {
+                board.clear();
+                hand.takeMore(random);
+            }
+        }
+    }
+
+    private static boolean anyFitsByScan(final BitBoard board, final Hand hand) {
+        for (int i = 0; i < hand.getCount(); ++i) {
+            final Shape shape = hand.get(i);
+            if (shape == null)
+                continue;
+
+            for (int y = 0; y + shape.cellRows <= board.size; ++y)
+                for (int x = 0; x + shape.cellCols <= board.size; ++x)
+                    if (fitsByCells(board, shape, x, y))
+                        return true;
+        }
+        return false;
+    }
+
+    // Looks at every cell, without any of the word tricks of the board
+    static boolean fitsByCells(final BitBoard board, final Shape shape, final int x, final int y) {
+        for (int i = 0; i < shape.cellRows; ++i)
+            for (int j = 0; j < shape.cellCols; ++j)
+                if (shape.filled(i, j) && !board.isEmpty(x + j, y + i))
+                    return false;
+
+        return true;
+    }
+}
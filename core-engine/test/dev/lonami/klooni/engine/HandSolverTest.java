@@ -0,0 +1,158 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Solves random positions with an unlimited budget and checks every answer
+// against trying every order and placement on a plain grid of cells
+public class HandSolverTest {
+
+    private static final int[] SIZES = {5, 6, 8};
+    private static final int POSITIONS = 3000;
+    private static final long NO_BUDGET = Long.MAX_VALUE / 4;
+
+    @Test
+    public void agreesWithBruteForce() {
+        for (int size : SIZES)
+            for (int i = 0; i < POSITIONS; ++i)
+                check(size, i);
+    }
+
+    private static void check(final int size, final int position) {
+        final SeededRandom random = new SeededRandom(position * 31L + size);
+        final BitBoard board = new BitBoard(size);
+        final float fill = 0.3f + 0.5f * random.nextFloat();
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                if (random.nextFloat() < fill)
+                    board.set(x, y, 0);
+
+        // Some hands are only partly left, as after putting some of their shapes
+        final Hand hand = new Hand(3);
+        hand.takeMore(random);
+        final int removed = random.nextInt(3);
+        for (int i = 0; i < removed; ++i)
+            hand.remove(random.nextInt(3));
+
+        final boolean[][] cells = new boolean[size][size];
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                cells[y][x] = !board.isEmpty(x, y);
+        clearFull(cells);
+
+        final HandSolver solver = new HandSolver(size, 3, Clock.SYSTEM);
+        final int result = solver.solve(board, hand, NO_BUDGET);
+        final String where = "size " + size + ", position " + position;
+        final boolean feasible = bruteForce(cells, hand, 0);
+        assertEquals(where, feasible ? HandSolver.FEASIBLE : HandSolver.DOOMED, result);
+
+        if (feasible) {
+            // The order found must put every shape left, one after another
+            int left = 0;
+            for (int i = 0; i < hand.getCount(); ++i)
+                if (hand.get(i) != null)
+                    left++;
+
+            assertEquals(where, left, solver.getOrderLength());
+            int used = 0;
+            for (int k = 0; k < solver.getOrderLength(); ++k) {
+                final int slot = solver.getOrderSlot(k);
+                final Shape shape = hand.get(slot);
+                assertTrue(where, shape != null && (used & (1 << slot)) == 0);
+                assertTrue(where, fits(cells, shape, solver.getOrderX(k), solver.getOrderY(k)));
+                put(cells, shape, solver.getOrderX(k), solver.getOrderY(k));
+                clearFull(cells);
+                used |= 1 << slot;
+            }
+        }
+    }
+
+    // Tries every shape left on every anchor, in every order
+    private static boolean bruteForce(final boolean[][] cells, final Hand hand, final int used) {
+        boolean any = false;
+        for (int slot = 0; slot < hand.getCount(); ++slot) {
+            final Shape shape = hand.get(slot);
+            if (shape == null || (used & (1 << slot)) != 0)
+                continue;
+
+            any = true;
+            for (int y = 0; y + shape.cellRows <= cells.length; ++y) {
+                for (int x = 0; x + shape.cellCols <= cells.length; ++x) {
+                    if (!fits(cells, shape, x, y))
+                        continue;
+
+                    final boolean[][] next = copy(cells);
+                    put(next, shape, x, y);
+                    clearFull(next);
+                    if (bruteForce(next, hand, used | (1 << slot)))
+                        return true;
+                }
+            }
+        }
+        return !any;
+    }
+
+    private static boolean fits(final boolean[][] cells, final Shape shape, final int x, final int y) {
+        if (x < 0 || y < 0 || x + shape.cellCols > cells.length || y + shape.cellRows > cells.length)
+            return false;
+
+        for (int i = 0; i < shape.cellRows; ++i)
+            for (int j = 0; j < shape.cellCols; ++j)
+                if (shape.filled(i, j) && cells[y + i][x + j])
+                    return false;
+
+        return true;
+    }
+
+    private static void put(final boolean[][] cells, final Shape shape, final int x, final int y) {
+        for (int i = 0; i < shape.cellRows; ++i)
+            for (int j = 0; j < shape.cellCols; ++j)
+                if (shape.filled(i, j))
+                    cells[y + i][x + j] = true;
+    }
+
+    // Empties every full row and column at once, as the game does
+    private static void clearFull(final boolean[][] cells) {
+        final int size = cells.length;
+        final boolean[] rows = new boolean[size];
+        final boolean[] columns = new boolean[size];
+        for (int k = 0; k < size; ++k) {
+            rows[k] = columns[k] = true;
+            for (int l = 0; l < size; ++l) {
+                rows[k] &= cells[k][l];
+                columns[k] &= cells[l][k];
+            }
+        }
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                if (rows[y] || columns[x])
+                    cells[y][x] = false;
+    }
+
+    private static boolean[][] copy(final boolean[][] cells) {
+        final boolean[][] result = new boolean[cells.length][];
+        for (int i = 0; i < cells.length; ++i)
+            result[i] = cells[i].clone();
+
+        return result;
+    }
+}
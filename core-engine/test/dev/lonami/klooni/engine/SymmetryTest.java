@@ -0,0 +1,175 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// Transforms random positions in all 8 ways and checks that their keys stay
+// the same, and that every move maps to the same move on the transformed board
+// and back, which is what the tables keyed by the canonical form rely on
+public class SymmetryTest {
+
+    private static final int[] SIZES = {1, 2, 5, 6, 8, 9, 10, 13};
+    private static final int POSITIONS = 750;
+
+    // Placements checked per shape, spread over all of the legal ones
+    private static final int MOVES = 8;
+
+    @Test
+    public void inverseUndoesEveryTransform() {
+        for (int size : SIZES) {
+            final Symmetry symmetry = new Symmetry(size);
+            for (int t = 0; t < Symmetry.COUNT; ++t) {
+                assertEquals(t, Symmetry.inverse(Symmetry.inverse(t)));
+                for (int i = 0; i < size * size; ++i)
+                    assertEquals(i, symmetry.transformCell(symmetry.transformCell(i, t), Symmetry.inverse(t)));
+                for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+                    assertSame(Shape.get(s), Symmetry.transform(Symmetry.transform(Shape.get(s), t), Symmetry.inverse(t)));
+            }
+        }
+    }
+
+    @Test
+    public void positionsKeepTheirKeyAndMovesRoundTrip() {
+        for (int size : SIZES)
+            for (int i = 0; i < POSITIONS; ++i)
+                check(size, i);
+    }
+
+    private static void check(final int size, final int position) {
+        final SeededRandom random = new SeededRandom(position * 31L + size);
+        final Symmetry symmetry = new Symmetry(size);
+        final String where = "size " + size + ", position " + position;
+
+        final BitBoard board = new BitBoard(size);
+        final float fill = random.nextFloat() * 0.7f;
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                if (random.nextFloat() < fill)
+                    board.set(x, y, random.nextInt(Shape.COLOR_COUNT));
+
+        final Hand hand = new Hand(3);
+        hand.takeMore(random);
+        if (random.nextBoolean())
+            hand.remove(random.nextInt(3));
+
+        final Shape[] shapes = new Shape[hand.getCount()];
+        for (int i = 0; i < shapes.length; ++i)
+            shapes[i] = hand.get(i);
+
+        final long[] handKeys = new long[Symmetry.COUNT];
+        Symmetry.handKeys(shapes, handKeys);
+        final long key = symmetry.canonicalKey(board, handKeys);
+
+        // The transform it reports must be the one that gives the key
+        final int keyTransform = symmetry.getTransform();
+        final BitBoard canonical = new BitBoard(size);
+        symmetry.transform(board, canonical, keyTransform);
+        assertEquals(where, key, canonical.getHash() ^ Zobrist.mix(handKeys[keyTransform]));
+
+        final BitBoard exact = new BitBoard(size);
+        symmetry.transform(board, exact, symmetry.canonicalTransform(board));
+
+        final BitBoard transformed = new BitBoard(size);
+        final BitBoard other = new BitBoard(size);
+        final Shape[] transformedShapes = new Shape[shapes.length];
+        final long[] transformedKeys = new long[Symmetry.COUNT];
+        for (int t = 0; t < Symmetry.COUNT; ++t) {
+            final String which = where + ", transform " + t;
+            symmetry.transform(board, transformed, t);
+            assertEquals(which, symmetry.hash(board, t), transformed.getHash());
+
+            Symmetry.transform(shapes, transformedShapes, t);
+            Symmetry.handKeys(transformedShapes, transformedKeys);
+            assertEquals(which, key, symmetry.canonicalKey(transformed, transformedKeys));
+
+            // Boards with symmetries of their own may still differ in color
+            symmetry.transform(transformed, other, symmetry.canonicalTransform(transformed));
+            assertSameFilled(which, exact, other);
+
+            // Packed boards transform the same, and share their canonical cells
+            if (size <= Symmetry.MAX_PACKED_SIZE) {
+                assertEquals(which, pack(transformed), symmetry.transform(pack(board), t));
+                assertEquals(which, pack(exact), symmetry.canonicalCells(pack(transformed)));
+            }
+
+            for (final Shape shape : shapes)
+                if (shape != null)
+                    checkMoves(symmetry, board, transformed, shape, t, which);
+        }
+    }
+
+    // Every move on the board is the same move on the transformed one, clearing
+    // the same lines, and the transformed move maps back to the original
+    private static void checkMoves(final Symmetry symmetry, final BitBoard board, final BitBoard transformed,
+                                   final Shape shape, final int t, final String which) {
+        final int size = board.size;
+        final Shape moved = Symmetry.transform(shape, t);
+        final int[] anchors = new int[size * size];
+        final int count = board.legalPlacements(shape, anchors);
+        assertEquals(which, count, transformed.legalPlacements(moved, new int[size * size]));
+
+        final BitBoard after = new BitBoard(size);
+        final BitBoard transformedAfter = new BitBoard(size);
+        final BitBoard mapped = new BitBoard(size);
+        final int step = Math.max(1, count / MOVES);
+        for (int i = 0; i < count; i += step) {
+            final int x = anchors[i] % size, y = anchors[i] / size;
+            final int anchor = symmetry.transformAnchor(shape, x, y, t);
+            final int tx = anchor % size, ty = anchor / size;
+            assertTrue(which, transformed.canPut(moved, tx, ty));
+            assertEquals(which, anchors[i], symmetry.transformAnchor(moved, tx, ty, Symmetry.inverse(t)));
+
+            after.copyFrom(board);
+            after.put(shape, x, y);
+            transformedAfter.copyFrom(transformed);
+            transformedAfter.put(moved, tx, ty);
+            assertEquals(which, after.findComplete(), transformedAfter.findComplete());
+            after.clearComplete();
+            transformedAfter.clearComplete();
+
+            symmetry.transform(after, mapped, t);
+            assertSameCells(which, mapped, transformedAfter);
+        }
+    }
+
+    private static long pack(final BitBoard board) {
+        long cells = 0;
+        for (int i = 0; i < board.size * board.size; ++i)
+            if (!board.isEmpty(i % board.size, i / board.size))
+                cells |= 1L << i;
+
+        return cells;
+    }
+
+    private static void assertSameFilled(final String where, final BitBoard expected, final BitBoard actual) {
+        for (int y = 0; y < expected.size; ++y)
+            for (int x = 0; x < expected.size; ++x)
+                assertEquals(where + ", cell " + x + "," + y, expected.isEmpty(x, y), actual.isEmpty(x, y));
+    }
+
+    private static void assertSameCells(final String where, final BitBoard expected, final BitBoard actual) {
+        for (int y = 0; y < expected.size; ++y)
+            for (int x = 0; x < expected.size; ++x)
+                assertEquals(where + ", cell " + x + "," + y, expected.getColor(x, y), actual.getColor(x, y));
+    }
+}
@@ -24,6 +24,7 @@ import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 
@@ -35,6 +36,8 @@ import dev.lonami.klooni.effects.ExplodeEffectFactory;
 import dev.lonami.klooni.effects.SpinEffectFactory;
 import dev.lonami.klooni.effects.VanishEffectFactory;
 import dev.lonami.klooni.effects.WaterdropEffectFactory;
+import dev.lonami.klooni.engine.BetScoring;
+import dev.lonami.klooni.engine.HintRunner;
 import dev.lonami.klooni.interfaces.IEffectFactory;
 import dev.lonami.klooni.screens.MainMenuScreen;
 import dev.lonami.klooni.screens.TransitionScreen;
@@ -61,8 +64,22 @@ public class Klooni extends Game {
 
     public final ShareChallenge shareChallenge;
 
+    // Searches for hints off the render thread, or null where there are no threads
+    public final HintRunner hintRunner;
+
     public static boolean onDesktop;
 
+    // Whether to log the texture binds and draw calls per frame, every second
+    public static boolean profileFrames;
+
+    // Whether to draw from the packed atlas when there is one, or from the loose textures
+    public static boolean useAtlas = true;
+    private GLProfiler profiler;
+    private int profiledFrames;
+    private int profiledBindings;
+    private int profiledDrawCalls;
+    private float profiledTime;
+
     private final static float SCORE_TO_MONEY = 1f / 100f;
 
     public static final int GAME_HEIGHT = 680;
@@ -73,12 +90,19 @@ public class Klooni extends Game {
     public static final int GAME_MODE_TIME = 1;
     public static final int GAME_MODE_CASINO = 2;
 
+    // Board sizes that can be picked on the settings, cycled in this order
+    public static final int[] BOARD_SIZES = {5, 6, 8, 10, 12, 16, 20, 32, 64, 128};
+    public static final int DEFAULT_BOARD_SIZE = 10;
+
+    // How the hands on the holder may be dealt, the first being the default
+    public static final String[] DEALERS = {"random", "solvable", "easy", "hard"};
+
     // Bet amounts available
     public static final int[] BET_AMOUNTS = {10, 25, 50, 100, 250, 500};
 
     // Multiplier tiers (score thresholds and their multipliers)
-    public static final int[] MULTIPLIER_THRESHOLDS = {100, 200, 300, 500, 1000};
-    public static final float[] MULTIPLIERS = {1.5f, 2.0f, 3.0f, 5.0f, 10.0f};
+    public static final int[] MULTIPLIER_THRESHOLDS = BetScoring.MULTIPLIER_THRESHOLDS;
+    public static final float[] MULTIPLIERS = BetScoring.MULTIPLIERS;
 
     //endregion
 
@@ -87,7 +111,12 @@ public class Klooni extends Game {
     // TODO Possibly implement a 'ShareChallenge'
     //      for other platforms instead passing null
     public Klooni(final ShareChallenge shareChallenge) {
+        this(shareChallenge, null);
+    }
+
+    public Klooni(final ShareChallenge shareChallenge, final HintRunner hintRunner) {
         this.shareChallenge = shareChallenge;
+        this.hintRunner = hintRunner;
     }
 
     @Override
@@ -106,6 +135,11 @@ public class Klooni extends Game {
         else
             theme = Theme.getTheme("default");
 
+        if (profileFrames) {
+            profiler = new GLProfiler(Gdx.graphics);
+            profiler.enable();
+        }
+
         Gdx.input.setCatchBackKey(true); // To show the pause menu
         setScreen(new MainMenuScreen(this));
         String effectName = prefs.getString("effectName", "vanish");
@@ -123,6 +157,30 @@ public class Klooni extends Game {
 
     //region Screen
 
+    @Override
+    public void render() {
+        super.render();
+        if (profiler != null) {
+            profiledFrames++;
+            profiledBindings += profiler.getTextureBindings();
+            profiledDrawCalls += profiler.getDrawCalls();
+            profiledTime += Gdx.graphics.getRawDeltaTime();
+            profiler.reset();
+
+            if (profiledTime >= 1f) {
+                // Say where the images come from, since a build without the packed
+                // atlas falls back to the loose textures even if it's wanted
+                Gdx.app.log("Klooni", "Per frame (" +
+                        (SkinLoader.usesAtlas() ? "atlas" : "loose textures") + "): " +
+                        profiledBindings / (float) profiledFrames + " texture binds, " +
+                        profiledDrawCalls / (float) profiledFrames + " draw calls");
+
+                profiledFrames = profiledBindings = profiledDrawCalls = 0;
+                profiledTime = 0f;
+            }
+        }
+    }
+
     // TransitionScreen will also dispose by default the previous screen
     public void transitionTo(Screen screen) {
         transitionTo(screen, true);
@@ -140,7 +198,9 @@ public class Klooni extends Game {
     public void dispose() {
         super.dispose();
         skin.dispose();
-        theme.dispose();
+        SkinLoader.dispose();
+        if (profiler != null)
+            profiler.disable();
         if (effectSounds != null) {
             for (Sound s : effectSounds.values()) {
                 s.dispose();
@@ -210,6 +270,52 @@ public class Klooni extends Game {
         return result;
     }
 
+    public static boolean hintsEnabled() {
+        return prefs.getBoolean("showHints", false);
+    }
+
+    public static boolean toggleHints() {
+        final boolean result = !hintsEnabled();
+        prefs.putBoolean("showHints", result).flush();
+        return result;
+    }
+
+    public static int getBoardSize() {
+        return prefs.getInteger("boardSize", DEFAULT_BOARD_SIZE);
+    }
+
+    // Switches to the next board size and returns it
+    public static int cycleBoardSize() {
+        final int current = getBoardSize();
+        int result = BOARD_SIZES[0];
+        for (int i = 0; i < BOARD_SIZES.length - 1; ++i) {
+            if (BOARD_SIZES[i] == current) {
+                result = BOARD_SIZES[i + 1];
+                break;
+            }
+        }
+        prefs.putInteger("boardSize", result).flush();
+        return result;
+    }
+
+    public static String getDealer() {
+        return prefs.getString("dealer", DEALERS[0]);
+    }
+
+    // Switches to the next way of dealing hands and returns it
+    public static String cycleDealer() {
+        final String current = getDealer();
+        String result = DEALERS[0];
+        for (int i = 0; i < DEALERS.length - 1; ++i) {
+            if (DEALERS[i].equals(current)) {
+                result = DEALERS[i + 1];
+                break;
+            }
+        }
+        prefs.putString("dealer", result).flush();
+        return result;
+    }
+
     // Themes related
     public static boolean isThemeBought(Theme theme) {
         if (theme.getPrice() == 0)
@@ -319,27 +425,17 @@ public class Klooni extends Game {
 
     // Get the current multiplier tier for a given score
     public static int getMultiplierTier(int score) {
-        for (int i = MULTIPLIER_THRESHOLDS.length - 1; i >= 0; i--) {
-            if (score >= MULTIPLIER_THRESHOLDS[i]) {
-                return i;
-            }
-        }
-        return -1; // No multiplier yet
+        return BetScoring.getMultiplierTier(score);
     }
 
     // Get the multiplier value for a given tier
     public static float getMultiplierForTier(int tier) {
-        if (tier >= 0 && tier < MULTIPLIERS.length) {
-            return MULTIPLIERS[tier];
-        }
-        return 1.0f; // Base multiplier
+        return BetScoring.getMultiplierForTier(tier);
     }
 
     // Calculate winnings for a bet and score
     public static int calculateWinnings(int betAmount, int score) {
-        int tier = getMultiplierTier(score);
-        float multiplier = getMultiplierForTier(tier);
-        return (int)(betAmount * multiplier);
+        return BetScoring.calculateWinnings(betAmount, score);
     }
 
     //endregion
@@ -18,21 +18,33 @@
 package dev.lonami.klooni;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
 
 public class SkinLoader {
     private final static float[] multipliers = {0.75f, 1.0f, 1.25f, 1.5f, 2.0f, 4.0f};
     private final static String[] ids = {
             "play", "play_saved", "star", "stopwatch", "palette", "home", "replay",
             "share", "sound_on", "sound_off", "snap_on", "snap_off", "issues", "credits",
-            "web", "back", "ok", "cancel", "power_off", "effects"
+            "web", "back", "ok", "cancel", "power_off", "effects", "stats", "board_size", "deal"
     };
 
     private final static float bestMultiplier;
 
+    // Atlas packed at build time ("gradlew pack") for the best multiplier,
+    // or null if it wasn't packed, in which case loose textures are used.
+    // Either way the regions are owned by the loader and shared by everyone.
+    private static TextureAtlas atlas;
+    private final static ObjectMap<String, TextureRegion> regions = new ObjectMap<String, TextureRegion>();
+    private final static Array<Texture> looseTextures = new Array<Texture>();
+
     // FIXME this static code is exposed to a race condition and will fail if called class gets loaded before execution of Klooni.create
     static {
         // Use the height to determine the best match
@@ -51,33 +63,79 @@ public class SkinLoader {
     }
 
     static Skin loadSkin() {
-        String folder = "ui/x" + bestMultiplier + "/";
+        final FileHandle atlasFile = Gdx.files.internal("atlas/x" + bestMultiplier + "/klooni.atlas");
+        if (Klooni.useAtlas && atlasFile.exists()) {
+            atlas = new TextureAtlas(atlasFile);
+        } else {
+            Gdx.app.log("SkinLoader", "No packed atlas used, using loose textures");
+        }
 
         // Base skin
         Skin skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
 
         // Nine patches
         final int border = (int) (28 * bestMultiplier);
-        skin.add("button_up", new NinePatch(new Texture(
-                Gdx.files.internal(folder + "button_up.png")), border, border, border, border));
+        skin.add("button_up", new NinePatch(
+                loadRegion("button_up.png"), border, border, border, border));
 
-        skin.add("button_down", new NinePatch(new Texture(
-                Gdx.files.internal(folder + "button_down.png")), border, border, border, border));
+        skin.add("button_down", new NinePatch(
+                loadRegion("button_down.png"), border, border, border, border));
 
         for (String id : ids) {
-            skin.add(id + "_texture", new Texture(Gdx.files.internal(folder + id + ".png")));
+            skin.add(id + "_texture", loadRegion(id + ".png"));
         }
 
-        folder = "font/x" + bestMultiplier + "/";
-        skin.add("font", new BitmapFont(Gdx.files.internal(folder + "geosans-light64.fnt")));
-        skin.add("font_small", new BitmapFont(Gdx.files.internal(folder + "geosans-light32.fnt")));
-        skin.add("font_bonus", new BitmapFont(Gdx.files.internal(folder + "the-next-font.fnt")));
+        skin.add("font", loadFont("geosans-light64"));
+        skin.add("font_small", loadFont("geosans-light32"));
+        skin.add("font_bonus", loadFont("the-next-font"));
 
         return skin;
     }
 
-    public static Texture loadPng(String name) {
-        final String filename = "ui/x" + bestMultiplier + "/" + name;
-        return new Texture(Gdx.files.internal(filename));
+    // Returns the region for the given image under the "ui/" folder.
+    // The same instance is returned on every call, so it must not be disposed.
+    public static TextureRegion loadRegion(String name) {
+        TextureRegion region = regions.get(name);
+        if (region == null) {
+            if (atlas != null) {
+                // The packer names the regions after the file without its extension
+                region = atlas.findRegion(name.substring(0, name.lastIndexOf('.')));
+            }
+            if (region == null) {
+                final Texture texture = new Texture(Gdx.files.internal("ui/x" + bestMultiplier + "/" + name));
+                looseTextures.add(texture);
+                region = new TextureRegion(texture);
+            }
+            regions.put(name, region);
+        }
+        return region;
+    }
+
+    // Whether the images are being drawn from the packed atlas, or from the loose textures
+    static boolean usesAtlas() {
+        return atlas != null;
+    }
+
+    private static BitmapFont loadFont(String name) {
+        final FileHandle fontFile = Gdx.files.internal("font/x" + bestMultiplier + "/" + name + ".fnt");
+        if (atlas != null) {
+            // Fonts have a single page, which is packed with the same name
+            final TextureRegion page = atlas.findRegion(name);
+            if (page != null)
+                return new BitmapFont(fontFile, page);
+        }
+        return new BitmapFont(fontFile);
+    }
+
+    static void dispose() {
+        if (atlas != null) {
+            atlas.dispose();
+            atlas = null;
+        }
+        for (Texture texture : looseTextures)
+            texture.dispose();
+
+        looseTextures.clear();
+        regions.clear();
     }
 }
@@ -22,6 +22,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.Array;
@@ -53,7 +54,11 @@ public class Theme {
 
     public static Skin skin;
 
-    public Texture cellTexture;
+    // Shared with the SkinLoader, which owns it
+    public TextureRegion cellTexture;
+
+    // Increased on every update, so whoever caches how things looked can tell
+    private int revision;
 
     // Save the button styles so the changes here get reflected
     private final ImageButton.ImageButtonStyle[] buttonStyles;
@@ -168,8 +173,9 @@ public class Theme {
         }
 
         String cellTextureFile = json.getString("cell_texture");
-        cellTexture = SkinLoader.loadPng("cells/" + cellTextureFile);
+        cellTexture = SkinLoader.loadRegion("cells/" + cellTextureFile);
 
+        revision++;
         return this;
     }
 
@@ -189,6 +195,10 @@ public class Theme {
         return price;
     }
 
+    public int getRevision() {
+        return revision;
+    }
+
     public ImageButton.ImageButtonStyle getStyle(int button) {
         return buttonStyles[button];
     }
@@ -197,6 +207,11 @@ public class Theme {
         return colorIndex < 0 ? emptyCell : cells[colorIndex];
     }
 
+    // How many colors the pieces can have, without counting the empty cell
+    public int getCellColorCount() {
+        return cells.length;
+    }
+
     public void glClearBackground() {
         Gdx.gl.glClearColor(background.r, background.g, background.b, background.a);
     }
@@ -221,12 +236,4 @@ public class Theme {
     }
 
     //endregion
-
-    //region Disposal
-
-    void dispose() {
-        cellTexture.dispose();
-    }
-
-    //endregion
 }
@@ -18,7 +18,6 @@
 package dev.lonami.klooni.effects;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
@@ -26,10 +25,9 @@ import com.badlogic.gdx.math.Vector2;
 
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
-import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
-public class EvaporateEffectFactory implements IEffectFactory {
+public class EvaporateEffectFactory extends PooledEffectFactory {
     @Override
     public String getName() {
         return "evaporate";
@@ -46,71 +44,55 @@ public class EvaporateEffectFactory implements IEffectFactory {
     }
 
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
-        IEffect effect = new EvaporateEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
+    protected IEffect newEffect() {
+        return new EvaporateEffect();
     }
 
 
-    private class EvaporateEffect implements IEffect {
-        private Vector2 pos;
-        private float originalX;
-
-        private float size;
-
-        private Color vanishColor;
-        private float vanishSize;
-        private float vanishElapsed;
-        private float driftMagnitude;
-        private float randomOffset;
-
+    private class EvaporateEffect extends ParticleEffect {
         private static final float UP_SPEED = 100.0f;
         private static final float LIFETIME = 3.0f;
         private static final float INV_LIFETIME = 1.0f / 3.0f;
 
         EvaporateEffect() {
-            vanishElapsed = Float.POSITIVE_INFINITY;
+            super(1);
         }
 
         @Override
         public void setInfo(Cell deadCell, Vector2 culprit) {
-            pos = deadCell.pos.cpy();
-            originalX = pos.x;
-            size = deadCell.size;
-
-            vanishSize = deadCell.size;
-            vanishColor = deadCell.getColorCopy();
-            driftMagnitude = Gdx.graphics.getWidth() * 0.05f;
-            vanishElapsed = 0;
-            randomOffset = MathUtils.random(MathUtils.PI2);
+            clearParticles();
+            final int p = emit();
+            if (p == -1)
+                return;
+
+            particles.x[p] = particles.originX[p] = deadCell.pos.x;
+            particles.y[p] = deadCell.pos.y;
+            particles.size[p] = particles.baseSize[p] = deadCell.size;
+            particles.phase[p] = MathUtils.random(MathUtils.PI2);
+            setColor(p, deadCell.getColor());
         }
 
         @Override
-        public void draw(Batch batch) {
-            vanishElapsed += Gdx.graphics.getDeltaTime();
+        boolean step(int p, float dt, Batch batch) {
+            final ParticleSystem ps = particles;
+            ps.age[p] += dt;
 
             // Update the size as we fade away
-            final float progress = vanishElapsed * INV_LIFETIME;
-            vanishSize = Interpolation.fade.apply(size, 0, progress);
-
-            // Fade away depending on the time
-            vanishColor.set(vanishColor.r, vanishColor.g, vanishColor.b, 1.0f - progress);
+            final float progress = ps.age[p] * INV_LIFETIME;
+            ps.size[p] = Interpolation.fade.apply(ps.baseSize[p], 0, progress);
 
             // Ghostly fade upwards, by doing a lerp from our current position to the wavy one
-            pos.x = MathUtils.lerp(
-                    pos.x,
-                    originalX + MathUtils.sin(randomOffset + vanishElapsed * 3f) * driftMagnitude,
+            final float driftMagnitude = Gdx.graphics.getWidth() * 0.05f;
+            ps.x[p] = MathUtils.lerp(
+                    ps.x[p],
+                    ps.originX[p] + MathUtils.sin(ps.phase[p] + ps.age[p] * 3f) * driftMagnitude,
                     0.3f
             );
-            pos.y += UP_SPEED * Gdx.graphics.getDeltaTime();
+            ps.y[p] += UP_SPEED * dt;
 
-            Cell.draw(vanishColor, batch, pos.x, pos.y, vanishSize);
-        }
-
-        @Override
-        public boolean isDone() {
-            return vanishElapsed > LIFETIME;
+            // Fade away depending on the time
+            drawCell(batch, p, 1.0f - progress, ps.x[p], ps.y[p], ps.size[p]);
+            return ps.age[p] <= LIFETIME;
         }
     }
 
@@ -0,0 +1,144 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+
+import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.interfaces.IEffect;
+
+// An effect made of particles on the shared ParticleSystem. The effects only
+// say how to emit their particles and how each one moves and is drawn
+abstract class ParticleEffect implements IEffect {
+
+    //region Members
+
+    final ParticleSystem particles = ParticleSystem.shared;
+
+    private final int[] slots;
+    private final int[] generations;
+    private int count;
+    private boolean done;
+
+    //endregion
+
+    //region Constructor
+
+    ParticleEffect(int maxParticles) {
+        slots = new int[maxParticles];
+        generations = new int[maxParticles];
+    }
+
+    //endregion
+
+    //region Emitting
+
+    // Frees the particles that are still alive, so the effect can be used again
+    @Override
+    public void reset() {
+        clearParticles();
+    }
+
+    // Forgets the particles of the previous use, if any
+    void clearParticles() {
+        for (int i = 0; i < count; ++i)
+            if (generations[i] != -1 && particles.hold(slots[i], generations[i]))
+                particles.free(slots[i]);
+
+        count = 0;
+        done = false;
+    }
+
+    // Returns a new zeroed particle of this effect, or -1 if there's no room for more
+    int emit() {
+        if (count == slots.length)
+            return -1;
+
+        final int slot = particles.obtain();
+        if (slot != -1) {
+            slots[count] = slot;
+            generations[count] = particles.getGeneration(slot);
+            count++;
+        }
+        return slot;
+    }
+
+    void setColor(final int p, final Color color) {
+        particles.r[p] = color.r;
+        particles.g[p] = color.g;
+        particles.b[p] = color.b;
+        particles.a[p] = color.a;
+    }
+
+    //endregion
+
+    //region Drawing
+
+    // Moves the particle by dt seconds and draws it, and returns whether it's still alive
+    abstract boolean step(int p, float dt, Batch batch);
+
+    @Override
+    public void draw(Batch batch) {
+        if (done)
+            return;
+
+        final float dt = Gdx.graphics.getDeltaTime();
+        boolean alive = false;
+        for (int i = 0; i < count; ++i) {
+            final int p = slots[i];
+            if (generations[i] == -1 || !particles.hold(p, generations[i]))
+                continue;
+
+            if (step(p, dt, batch)) {
+                alive = true;
+            } else {
+                particles.free(p);
+                generations[i] = -1;
+            }
+        }
+        done = !alive;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    // Draws the particle with the cell texture of the theme
+    void drawCell(final Batch batch, final int p, final float alpha,
+                  final float x, final float y, final float size) {
+        drawRegion(batch, Klooni.theme.cellTexture, p, alpha, x, y, size);
+    }
+
+    void drawRegion(final Batch batch, final TextureRegion region, final int p, final float alpha,
+                    final float x, final float y, final float size) {
+        batch.setColor(particles.r[p], particles.g[p], particles.b[p], alpha);
+        batch.draw(region, x, y, size, size);
+    }
+
+    // Vertical translation of the batch, to tell when a particle left the screen
+    static float translationY(final Batch batch) {
+        return batch.getTransformMatrix().val[Matrix4.M13];
+    }
+
+    //endregion
+}
@@ -0,0 +1,182 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.Gdx;
+
+// Particles of every effect, kept on preallocated arrays (one per property) so
+// that emitting, updating and drawing them never allocates. Each particle is a
+// slot on the arrays, leased to the effect that emitted it until it frees it.
+//
+// When every slot is in use, the slots that no effect drew for a couple of
+// frames (because the board holding it was left behind) are taken back, and if
+// there are none, nothing is emitted, so the cells past the cap simply vanish
+public class ParticleSystem {
+
+    //region Members
+
+    public final static ParticleSystem shared = new ParticleSystem(8192);
+
+    // The meaning of the properties depends on the effect that emitted the
+    // particle, but position, velocity, size and color are what most need
+    final float[] x;
+    final float[] y;
+    final float[] vx;
+    final float[] vy;
+    final float[] ay;
+    final float[] size;
+    final float[] baseSize;
+    final float[] r;
+    final float[] g;
+    final float[] b;
+    final float[] a;
+    final float[] age;
+    final float[] originX;
+    final float[] phase;
+
+    // Increased whenever a slot is freed, so whoever held it can tell it's gone
+    private final int[] generation;
+    private final long[] lastFrame;
+    private final boolean[] used;
+
+    private final int[] free;
+    private int freeCount;
+
+    // Don't look for abandoned slots more than once per frame
+    private long reclaimedFrame = -1;
+
+    private int highWater;
+    private long dropped;
+
+    //endregion
+
+    //region Constructor
+
+    ParticleSystem(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        ay = new float[capacity];
+        size = new float[capacity];
+        baseSize = new float[capacity];
+        r = new float[capacity];
+        g = new float[capacity];
+        b = new float[capacity];
+        a = new float[capacity];
+        age = new float[capacity];
+        originX = new float[capacity];
+        phase = new float[capacity];
+
+        generation = new int[capacity];
+        lastFrame = new long[capacity];
+        used = new boolean[capacity];
+        free = new int[capacity];
+
+        // Hand out the lower slots first
+        for (int i = 0; i < capacity; ++i)
+            free[i] = capacity - i - 1;
+        freeCount = capacity;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Frees the slots that weren't drawn on this frame nor the previous one
+    private void reclaim(final long frame) {
+        reclaimedFrame = frame;
+        for (int i = 0; i < generation.length; ++i)
+            if (used[i] && lastFrame[i] < frame - 1)
+                free(i);
+    }
+
+    //endregion
+
+    //region Package-private methods
+
+    // Returns the slot of a new particle with every property zeroed,
+    // or -1 if there's no room for it
+    int obtain() {
+        final long frame = Gdx.graphics.getFrameId();
+        if (freeCount == 0 && reclaimedFrame != frame)
+            reclaim(frame);
+
+        if (freeCount == 0) {
+            dropped++;
+            return -1;
+        }
+
+        final int slot = free[--freeCount];
+        x[slot] = y[slot] = vx[slot] = vy[slot] = ay[slot] = 0f;
+        size[slot] = baseSize[slot] = age[slot] = originX[slot] = phase[slot] = 0f;
+        r[slot] = g[slot] = b[slot] = a[slot] = 1f;
+        lastFrame[slot] = frame;
+        used[slot] = true;
+
+        if (getUsed() > highWater)
+            highWater = getUsed();
+
+        return slot;
+    }
+
+    int getGeneration(final int slot) {
+        return generation[slot];
+    }
+
+    // Whether the slot still belongs to whoever obtained it on the given generation,
+    // and if so, keeps it from being reclaimed for a while longer
+    boolean hold(final int slot, final int gen) {
+        if (generation[slot] != gen)
+            return false;
+
+        lastFrame[slot] = Gdx.graphics.getFrameId();
+        return true;
+    }
+
+    void free(final int slot) {
+        used[slot] = false;
+        generation[slot]++;
+        free[freeCount++] = slot;
+    }
+
+    //endregion
+
+    //region Statistics
+
+    public int getCapacity() {
+        return generation.length;
+    }
+
+    // Particles alive right now
+    public int getUsed() {
+        return generation.length - freeCount;
+    }
+
+    // The most particles that were ever alive at once
+    public int getHighWater() {
+        return highWater;
+    }
+
+    // Particles that weren't emitted because every slot was in use
+    public long getDropped() {
+        return dropped;
+    }
+
+    //endregion
+}
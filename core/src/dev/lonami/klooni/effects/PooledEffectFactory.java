@@ -0,0 +1,89 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.effects;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
+
+import dev.lonami.klooni.game.Cell;
+import dev.lonami.klooni.interfaces.IEffect;
+import dev.lonami.klooni.interfaces.IEffectFactory;
+
+// Factory that reuses the effects that were freed, so that once the pool is as
+// big as the largest clear needs, clearing cells doesn't allocate anything
+public abstract class PooledEffectFactory implements IEffectFactory {
+
+    //region Members
+
+    private final Pool<IEffect> pool = new Pool<IEffect>() {
+        @Override
+        protected IEffect newObject() {
+            created++;
+            return newEffect();
+        }
+    };
+
+    private int created;
+    private int inUse;
+    private int highWater;
+
+    //endregion
+
+    //region Pooling
+
+    // Creates a new instance of the effect, only called when the pool is empty
+    protected abstract IEffect newEffect();
+
+    @Override
+    public IEffect create(Cell deadCell, Vector2 culprit) {
+        final IEffect effect = pool.obtain();
+        if (++inUse > highWater)
+            highWater = inUse;
+
+        effect.setInfo(deadCell, culprit);
+        return effect;
+    }
+
+    // Resets the effect and keeps it to be used again
+    @Override
+    public void free(IEffect effect) {
+        inUse--;
+        pool.free(effect);
+    }
+
+    //endregion
+
+    //region Statistics
+
+    @Override
+    public int getPoolSize() {
+        return created;
+    }
+
+    @Override
+    public int getPoolHighWater() {
+        return highWater;
+    }
+
+    // Effects that are currently drawn, and not on the pool
+    public int getInUse() {
+        return inUse;
+    }
+
+    //endregion
+}
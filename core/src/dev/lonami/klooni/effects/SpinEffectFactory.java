@@ -17,19 +17,16 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
-import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 
+import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
-import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
-public class SpinEffectFactory implements IEffectFactory {
+public class SpinEffectFactory extends PooledEffectFactory {
     @Override
     public String getName() {
         return "spin";
@@ -46,59 +43,53 @@ public class SpinEffectFactory implements IEffectFactory {
     }
 
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
-        IEffect effect = new SpinEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
+    protected IEffect newEffect() {
+        return new SpinEffect();
     }
 
 
-    private class SpinEffect implements IEffect {
-        private float age;
-        private Vector2 pos;
-        private float size;
-        private Color color;
-
+    private class SpinEffect extends ParticleEffect {
         private static final float LIFETIME = 2.0f;
         private static final float INV_LIFETIME = 1.0f / LIFETIME;
 
         private static final float TOTAL_ROTATION = 600;
 
+        SpinEffect() {
+            super(1);
+        }
+
         @Override
         public void setInfo(Cell deadCell, Vector2 culprit) {
-            age = 0;
-            pos = deadCell.pos.cpy();
-            size = deadCell.size;
-            color = deadCell.getColorCopy();
+            clearParticles();
+            final int p = emit();
+            if (p == -1)
+                return;
+
+            particles.x[p] = deadCell.pos.x;
+            particles.y[p] = deadCell.pos.y;
+            particles.size[p] = particles.baseSize[p] = deadCell.size;
+            setColor(p, deadCell.getColor());
         }
 
         @Override
-        public void draw(Batch batch) {
-            age += Gdx.graphics.getDeltaTime();
+        boolean step(int p, float dt, Batch batch) {
+            final ParticleSystem ps = particles;
+            ps.age[p] += dt;
 
-            final float progress = age * INV_LIFETIME;
-            final float currentSize = Interpolation.pow2In.apply(size, 0, progress);
+            final float progress = ps.age[p] * INV_LIFETIME;
+            final float currentSize = Interpolation.pow2In.apply(ps.baseSize[p], 0, progress);
             final float currentRotation = Interpolation.sine.apply(0, TOTAL_ROTATION, progress);
 
-            final Matrix4 original = batch.getTransformMatrix().cpy();
-            final Matrix4 rotated = batch.getTransformMatrix();
-
-            final float disp =
-                    +0.5f * (size - currentSize) // the smaller, the more we need to "push" to center
-                            + currentSize * 0.5f; // center the cell for rotation
+            // The smaller, the more we need to "push" to stay on the center of the cell,
+            // which is also the center of the rotation
+            final float disp = 0.5f * (ps.baseSize[p] - currentSize);
+            final float half = currentSize * 0.5f;
 
-            rotated.translate(pos.x + disp, pos.y + disp, 0);
-            rotated.rotate(0, 0, 1, currentRotation);
-            rotated.translate(currentSize * -0.5f, currentSize * -0.5f, 0); // revert centering for rotation
+            batch.setColor(ps.r[p], ps.g[p], ps.b[p], ps.a[p]);
+            batch.draw(Klooni.theme.cellTexture, ps.x[p] + disp, ps.y[p] + disp,
+                    half, half, currentSize, currentSize, 1f, 1f, currentRotation);
 
-            batch.setTransformMatrix(rotated);
-            Cell.draw(color, batch, 0, 0, currentSize);
-            batch.setTransformMatrix(original);
-        }
-
-        @Override
-        public boolean isDone() {
-            return age > LIFETIME;
+            return ps.age[p] <= LIFETIME;
         }
     }
 
@@ -17,8 +17,6 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
@@ -26,10 +24,9 @@ import com.badlogic.gdx.math.Vector2;
 
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
-import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
-public class VanishEffectFactory implements IEffectFactory {
+public class VanishEffectFactory extends PooledEffectFactory {
     @Override
     public String getName() {
         return "vanish";
@@ -46,71 +43,64 @@ public class VanishEffectFactory implements IEffectFactory {
     }
 
     @Override
-    public IEffect create(Cell deadCell, Vector2 culprit) {
-        IEffect effect = new VanishEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
+    protected IEffect newEffect() {
+        return new VanishEffect();
     }
 
 
-    private class VanishEffect implements IEffect {
-        private Cell cell;
-
-        private Color vanishColor;
-        private float vanishSize;
-        private float vanishElapsed;
-        private float vanishLifetime;
-
+    private class VanishEffect extends ParticleEffect {
         private final static float MINIMUM_SIZE = 0.3f;
+        private final static float LIFETIME = 1f;
 
         VanishEffect() {
-            vanishElapsed = Float.POSITIVE_INFINITY;
+            super(1);
         }
 
         @Override
         public void setInfo(Cell deadCell, Vector2 culprit) {
-            cell = deadCell;
+            clearParticles();
+            final int p = emit();
+            if (p == -1)
+                return;
 
-            vanishSize = cell.size;
-            vanishColor = cell.getColorCopy();
-            vanishLifetime = 1f;
+            particles.x[p] = deadCell.pos.x;
+            particles.y[p] = deadCell.pos.y;
+            particles.size[p] = particles.baseSize[p] = deadCell.size;
+            setColor(p, deadCell.getColor());
 
             // The vanish distance is this measure (distance² + size³ * 20% size)
             // because it seems good enough. The more the distance, the more the
             // delay, but we decrease the delay depending on the cell size too or
             // it would be way too high
-            Vector2 center = new Vector2(cell.pos.x + cell.size * 0.5f, cell.pos.y + 0.5f);
+            final float centerX = deadCell.pos.x + deadCell.size * 0.5f;
+            final float centerY = deadCell.pos.y + 0.5f;
             float vanishDist = Vector2.dst2(
-                    culprit.x, culprit.y, center.x, center.y) / ((float) Math.pow(cell.size, 4.0f) * 0.2f);
+                    culprit.x, culprit.y, centerX, centerY) / ((float) Math.pow(deadCell.size, 4.0f) * 0.2f);
 
             // Negative time = delay, + 0.4*lifetime because elastic interpolation has that delay
-            vanishElapsed = vanishLifetime * 0.4f - vanishDist;
+            particles.age[p] = LIFETIME * 0.4f - vanishDist;
         }
 
         @Override
-        public void draw(Batch batch) {
-            vanishElapsed += Gdx.graphics.getDeltaTime();
+        boolean step(int p, float dt, Batch batch) {
+            final ParticleSystem ps = particles;
+            ps.age[p] += dt;
 
-            // vanishElapsed might be < 0 (delay), so clamp to 0
-            float progress = Math.min(1f,
-                    Math.max(vanishElapsed, 0f) / vanishLifetime);
+            // The age might be < 0 (delay), so clamp to 0
+            float progress = Math.min(1f, Math.max(ps.age[p], 0f) / LIFETIME);
 
             // If one were to plot the elasticIn function, they would see that the slope increases
             // a lot towards the end- a linear interpolation between the last size + the desired
             // size at 20% seems to look a lot better.
-            vanishSize = MathUtils.lerp(
-                    vanishSize,
-                    Interpolation.elasticIn.apply(cell.size, 0, progress),
+            ps.size[p] = MathUtils.lerp(
+                    ps.size[p],
+                    Interpolation.elasticIn.apply(ps.baseSize[p], 0, progress),
                     0.2f
             );
 
-            float centerOffset = cell.size * 0.5f - vanishSize * 0.5f;
-            Cell.draw(vanishColor, batch, cell.pos.x + centerOffset, cell.pos.y + centerOffset, vanishSize);
-        }
-
-        @Override
-        public boolean isDone() {
-            return vanishSize < MINIMUM_SIZE;
+            float centerOffset = ps.baseSize[p] * 0.5f - ps.size[p] * 0.5f;
+            drawCell(batch, p, ps.a[p], ps.x[p] + centerOffset, ps.y[p] + centerOffset, ps.size[p]);
+            return ps.size[p] >= MINIMUM_SIZE;
         }
     }
 
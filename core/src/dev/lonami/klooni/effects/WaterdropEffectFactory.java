@@ -17,27 +17,23 @@
 */
 package dev.lonami.klooni.effects;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 
 import dev.lonami.klooni.SkinLoader;
 import dev.lonami.klooni.game.Cell;
 import dev.lonami.klooni.interfaces.IEffect;
-import dev.lonami.klooni.interfaces.IEffectFactory;
 
 
-public class WaterdropEffectFactory implements IEffectFactory {
-    private Texture dropTexture;
+public class WaterdropEffectFactory extends PooledEffectFactory {
+    private TextureRegion dropTexture;
 
 
     private void init() {
         if (dropTexture == null)
-            dropTexture = SkinLoader.loadPng("cells/drop.png");
+            dropTexture = SkinLoader.loadRegion("cells/drop.png");
     }
 
     @Override
@@ -55,67 +51,55 @@ public class WaterdropEffectFactory implements IEffectFactory {
         return 200;
     }
 
+    @Override
+    protected IEffect newEffect() {
+        return new WaterdropEffect();
+    }
+
     @Override
     public IEffect create(Cell deadCell, Vector2 culprit) {
         init();
-        IEffect effect = new WaterdropEffect();
-        effect.setInfo(deadCell, culprit);
-        return effect;
+        return super.create(deadCell, culprit);
     }
 
 
-    private class WaterdropEffect implements IEffect {
-        private Vector2 pos;
-        private boolean dead;
-
-        private Color cellColor;
-        private Color dropColor;
-        private float cellSize;
-
-        private final float fallAcceleration;
-        private float fallSpeed;
-
+    private class WaterdropEffect extends ParticleEffect {
         private static final float FALL_ACCELERATION = 500.0f;
         private static final float FALL_VARIATION = 50.0f;
         private static final float COLOR_SPEED = 7.5f;
 
         WaterdropEffect() {
-            fallAcceleration = FALL_ACCELERATION + MathUtils.random(-FALL_VARIATION, FALL_VARIATION);
+            super(1);
         }
 
         @Override
         public void setInfo(Cell deadCell, Vector2 culprit) {
-            pos = deadCell.pos.cpy();
-            cellSize = deadCell.size;
-            cellColor = deadCell.getColorCopy();
-            dropColor = new Color(cellColor.r, cellColor.g, cellColor.b, 0.0f);
+            clearParticles();
+            final int p = emit();
+            if (p == -1)
+                return;
+
+            particles.x[p] = deadCell.pos.x;
+            particles.y[p] = deadCell.pos.y;
+            particles.size[p] = deadCell.size;
+            particles.ay[p] = FALL_ACCELERATION + MathUtils.random(-FALL_VARIATION, FALL_VARIATION);
+            setColor(p, deadCell.getColor());
         }
 
         @Override
-        public void draw(Batch batch) {
-            final float dt = Gdx.graphics.getDeltaTime();
-            fallSpeed += fallAcceleration * dt;
-            pos.y -= fallSpeed * dt;
-
-            cellColor.set(
-                    cellColor.r, cellColor.g, cellColor.b,
-                    Math.max(cellColor.a - COLOR_SPEED * dt, 0.0f)
-            );
-            dropColor.set(
-                    cellColor.r, cellColor.g, cellColor.b,
-                    Math.min(dropColor.a + COLOR_SPEED * dt, 1.0f)
-            );
-
-            Cell.draw(cellColor, batch, pos.x, pos.y, cellSize);
-            Cell.draw(dropTexture, dropColor, batch, pos.x, pos.y, cellSize);
-
-            final Vector3 translation = batch.getTransformMatrix().getTranslation(new Vector3());
-            dead = translation.y + pos.y + dropTexture.getHeight() < 0;
-        }
-
-        @Override
-        public boolean isDone() {
-            return dead;
+        boolean step(int p, float dt, Batch batch) {
+            final ParticleSystem ps = particles;
+            ps.age[p] += dt;
+            ps.vy[p] += ps.ay[p] * dt;
+            ps.y[p] -= ps.vy[p] * dt;
+
+            // The cell fades out as the drop fades in
+            final float fade = COLOR_SPEED * ps.age[p];
+            drawCell(batch, p, Math.max(ps.a[p] - fade, 0.0f), ps.x[p], ps.y[p], ps.size[p]);
+            drawRegion(batch, dropTexture, p, Math.min(fade, 1.0f), ps.x[p], ps.y[p], ps.size[p]);
+
+            return translationY(batch) + ps.y[p] + dropTexture.getRegionHeight() >= 0;
         }
     }
+
 }
@@ -18,8 +18,8 @@
 package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
@@ -28,18 +28,20 @@ import com.badlogic.gdx.utils.Align;
 
 import dev.lonami.klooni.Klooni;
 import dev.lonami.klooni.SkinLoader;
+import dev.lonami.klooni.engine.Scoring;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 public abstract class BaseScorer implements BinSerializable {
 
     //region Members
 
-    int currentScore;
+    // The actual rules of the score, this class only displays it
+    final Scoring scoring;
 
     final Label currentScoreLabel;
     final Label highScoreLabel;
 
-    final Texture cupTexture;
+    final TextureRegion cupTexture;
     final Rectangle cupArea;
 
     private final Color cupColor;
@@ -52,8 +54,9 @@ public abstract class BaseScorer implements BinSerializable {
     //region Constructor
 
     // The board size is required when calculating the score
-    BaseScorer(final Klooni game, GameLayout layout, int highScore) {
-        cupTexture = SkinLoader.loadPng("cup.png");
+    BaseScorer(final Klooni game, GameLayout layout, final Scoring scoring, int highScore) {
+        this.scoring = scoring;
+        cupTexture = SkinLoader.loadRegion("cup.png");
         cupColor = Klooni.theme.currentScore.cpy();
         cupArea = new Rectangle();
 
@@ -70,36 +73,25 @@ public abstract class BaseScorer implements BinSerializable {
 
     //endregion
 
-    //region Private methods
-
-    // The original game seems to work as follows:
-    // If < 1 were cleared, score = 0
-    // If = 1  was cleared, score = cells cleared
-    // If > 1 were cleared, score = cells cleared + score(cleared - 1)
-    final int calculateClearScore(int stripsCleared, int boardSize) {
-        if (stripsCleared < 1) return 0;
-        if (stripsCleared == 1) return boardSize;
-        else return boardSize * stripsCleared + calculateClearScore(stripsCleared - 1, boardSize);
-    }
-
-    //endregion
-
     //region Public methods
 
     // Adds the score a given piece would give
     public void addPieceScore(final int areaPut) {
-        currentScore += areaPut;
+        scoring.addPieceScore(areaPut);
     }
 
     // Adds the score given by the board, this is, the count of cleared strips
     public int addBoardScore(int stripsCleared, int boardSize) {
-        int score = calculateClearScore(stripsCleared, boardSize);
-        currentScore += score;
-        return score;
+        return scoring.addBoardScore(stripsCleared, boardSize);
     }
 
     public int getCurrentScore() {
-        return currentScore;
+        return scoring.getCurrentScore();
+    }
+
+    // Used when going back to a previous move
+    public void setCurrentScore(int currentScore) {
+        scoring.setCurrentScore(currentScore);
     }
 
     public void pause() {
@@ -108,7 +100,9 @@ public abstract class BaseScorer implements BinSerializable {
     public void resume() {
     }
 
-    abstract public boolean isGameOver();
+    public boolean isGameOver() {
+        return scoring.isGameOver();
+    }
 
     abstract protected boolean isNewRecord();
 
@@ -124,6 +118,7 @@ public abstract class BaseScorer implements BinSerializable {
         batch.setColor(cupColor);
         batch.draw(cupTexture, cupArea.x, cupArea.y, cupArea.width, cupArea.height);
 
+        final int currentScore = scoring.getCurrentScore();
         int roundShown = MathUtils.round(shownScore);
         if (roundShown != currentScore) {
             shownScore = Interpolation.linear.apply(shownScore, currentScore, 0.1f);
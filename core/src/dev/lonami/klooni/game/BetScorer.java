@@ -25,6 +25,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.BetScoring;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 /**
@@ -34,9 +35,7 @@ public class BetScorer extends BaseScorer implements BinSerializable {
 
     //region Members
 
-    private int betAmount;
-    private float currentMultiplier;
-    private int lastMultiplierTier;
+    private final BetScoring betScoring;
 
     // Listener for multiplier changes
     private MultiplierListener multiplierListener;
@@ -58,14 +57,16 @@ public class BetScorer extends BaseScorer implements BinSerializable {
     //region Constructor
 
     public BetScorer(final Klooni game, GameLayout layout, int betAmount) {
-        super(game, layout, 0); // No high score tracking for casino mode
-        this.betAmount = betAmount;
-        this.currentMultiplier = 1.0f;
-        this.lastMultiplierTier = -1;
+        this(game, layout, new BetScoring(betAmount));
+    }
+
+    private BetScorer(final Klooni game, GameLayout layout, final BetScoring betScoring) {
+        super(game, layout, betScoring, 0); // No high score tracking for casino mode
+        this.betScoring = betScoring;
         this.glowColor = new Color(1f, 0.84f, 0f, 1f); // Gold color
 
         // Update high score label to show bet amount
-        highScoreLabel.setText("BET: " + betAmount);
+        highScoreLabel.setText("BET: " + betScoring.getBetAmount());
     }
 
     //endregion
@@ -90,44 +91,34 @@ public class BetScorer extends BaseScorer implements BinSerializable {
     }
 
     private void updateMultiplier() {
-        int newTier = Klooni.getMultiplierTier(currentScore);
-        if (newTier > lastMultiplierTier) {
-            lastMultiplierTier = newTier;
-            currentMultiplier = Klooni.getMultiplierForTier(newTier);
-
-            if (multiplierListener != null) {
-                multiplierListener.onMultiplierChanged(currentMultiplier, newTier);
-            }
+        if (betScoring.updateMultiplier() && multiplierListener != null) {
+            multiplierListener.onMultiplierChanged(
+                    betScoring.getCurrentMultiplier(), betScoring.getMultiplierTier());
         }
     }
 
     public int getBetAmount() {
-        return betAmount;
+        return betScoring.getBetAmount();
     }
 
     public float getCurrentMultiplier() {
-        return currentMultiplier;
+        return betScoring.getCurrentMultiplier();
     }
 
     public int getMultiplierTier() {
-        return lastMultiplierTier;
+        return betScoring.getMultiplierTier();
     }
 
     public int calculateWinnings() {
-        return (int)(betAmount * currentMultiplier);
+        return betScoring.calculateWinnings();
     }
 
     public boolean isWinning() {
-        return currentMultiplier > 1.0f;
+        return betScoring.isWinning();
     }
 
     public int getNetProfit() {
-        return calculateWinnings() - betAmount;
-    }
-
-    @Override
-    public boolean isGameOver() {
-        return false; // Casino mode doesn't have time-based game over
+        return betScoring.getNetProfit();
     }
 
     @Override
@@ -156,6 +147,7 @@ public class BetScorer extends BaseScorer implements BinSerializable {
         super.draw(batch);
 
         // Draw multiplier indicator
+        final float currentMultiplier = betScoring.getCurrentMultiplier();
         if (currentMultiplier > 1.0f) {
             // GWT doesn't support String.format, so we format manually
             int wholePart = (int) currentMultiplier;
@@ -171,18 +163,19 @@ public class BetScorer extends BaseScorer implements BinSerializable {
 
     @Override
     public void write(DataOutputStream out) throws IOException {
-        out.writeInt(currentScore);
-        out.writeInt(betAmount);
-        out.writeFloat(currentMultiplier);
-        out.writeInt(lastMultiplierTier);
+        out.writeInt(getCurrentScore());
+        out.writeInt(betScoring.getBetAmount());
+        out.writeFloat(betScoring.getCurrentMultiplier());
+        out.writeInt(betScoring.getMultiplierTier());
     }
 
     @Override
     public void read(DataInputStream in) throws IOException {
-        currentScore = in.readInt();
-        betAmount = in.readInt();
-        currentMultiplier = in.readFloat();
-        lastMultiplierTier = in.readInt();
+        betScoring.setCurrentScore(in.readInt());
+        final int betAmount = in.readInt();
+        final float currentMultiplier = in.readFloat();
+        final int lastMultiplierTier = in.readInt();
+        betScoring.restore(betAmount, currentMultiplier, lastMultiplierTier);
     }
 
     //endregion
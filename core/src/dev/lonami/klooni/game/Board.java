@@ -17,8 +17,16 @@
 */
 package dev.lonami.klooni.game;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
@@ -27,6 +35,12 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.Theme;
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.BoardFeatures;
+import dev.lonami.klooni.engine.BoardSnapshot;
+import dev.lonami.klooni.engine.Shape;
 import dev.lonami.klooni.interfaces.IEffect;
 import dev.lonami.klooni.interfaces.IEffectFactory;
 import dev.lonami.klooni.serializer.BinSerializable;
@@ -39,20 +53,68 @@ public class Board implements BinSerializable {
 
     public final int cellCount;
     public float cellSize;
+
+    // The rules work on the packed state, while the cells are only kept
+    // up to date for drawing and to be handed to the vanishing effects
+    private final BitBoard state;
+
+    // How fragmented the empty cells are, kept up to date with the state
+    private final BoardFeatures features;
     private Cell[][] cells;
     private final Array<IEffect> effects = new Array<IEffect>(); // Particle effects once they vanish
+    private final Array<IEffectFactory> effectFactories = new Array<IEffectFactory>(); // Where to free each one
 
     public final Vector2 pos = new Vector2();
 
     // Used to animate cleared cells vanishing
     private final Vector2 lastPutPiecePos = new Vector2();
 
+    // Reused so drawing a hint every frame allocates nothing
+    private final Color hintColor = new Color();
+
+    // The cells only change on a drop or a clear, so when cached they're drawn
+    // once to a texture, and every frame only draws it as a single quad. The
+    // layer is drawn again when the cells, the theme or the GL context change
+    private boolean cached;
+    private FrameBuffer layer;
+    private TextureRegion layerRegion;
+    private boolean layerDirty;
+    private Theme layerTheme;
+    private int layerRevision;
+    private int layerEpoch;
+
+    // Large boards rather draw every cell at once from a mesh, which only
+    // changes the colors of the cells, instead of redrawing them all
+    private BoardMesh mesh;
+
+    // Matrices of the batch, saved while the layer is being drawn
+    private final Matrix4 savedProjection = new Matrix4();
+    private final Matrix4 savedTransform = new Matrix4();
+    private final Matrix4 layerProjection = new Matrix4();
+    private final Matrix4 identity = new Matrix4();
+
+    // How many frames drew the cached layer as it was, and how many had to redraw it
+    private long layerHits;
+    private long layerMisses;
+
+    //endregion
+
+    //region Static members
+
+    // How opaque the cells of a hint are drawn, so they're not mistaken by put ones
+    private static final float HINT_ALPHA = 0.35f;
+
+    // Increased when the GL context is lost, which loses the contents of every layer
+    private static int epoch;
+
     //endregion
 
     //region Constructor
 
     public Board(final GameLayout layout, int cellCount) {
         this.cellCount = cellCount;
+        state = new BitBoard(cellCount);
+        features = new BoardFeatures(state);
 
         // Cell size depends on the layout to be updated first
         layout.update(this);
@@ -61,6 +123,8 @@ public class Board implements BinSerializable {
 
     public Board(final Rectangle area, int cellCount) {
         this.cellCount = cellCount;
+        state = new BitBoard(cellCount);
+        features = new BoardFeatures(state);
 
         // Cell size depends on the layout to be updated first
         pos.set(area.x, area.y);
@@ -81,40 +145,90 @@ public class Board implements BinSerializable {
 
     //region Private methods
 
-    // True if the given cell coordinates are inside the bounds of the board
-    private boolean inBounds(int x, int y) {
-        return x >= 0 && x < cellCount && y >= 0 && y < cellCount;
+    // This only tests for the piece on the given coordinates, not the whole board
+    private boolean canPutPiece(Piece piece, int x, int y) {
+        return state.canPut(piece.shape, x, y);
     }
 
-    // True if the given piece at the given coordinates is not outside the bounds of the board
-    private boolean inBounds(Piece piece, int x, int y) {
-        return inBounds(x, y) && inBounds(x + piece.cellCols - 1, y + piece.cellRows - 1);
+    private void drawCells(final Batch batch) {
+        for (int i = 0; i < cellCount; ++i)
+            for (int j = 0; j < cellCount; ++j)
+                cells[i][j].draw(batch);
     }
 
-    // This only tests for the piece on the given coordinates, not the whole board
-    private boolean canPutPiece(Piece piece, int x, int y) {
-        if (!inBounds(piece, x, y))
-            return false;
+    // Effects come from the pool of their factory, which is remembered to give them back
+    private void addEffect(final IEffectFactory effect, final Cell deadCell, final Vector2 culprit) {
+        effects.add(effect.create(deadCell, culprit));
+        effectFactories.add(effect);
+    }
 
-        for (int i = 0; i < piece.cellRows; ++i)
-            for (int j = 0; j < piece.cellCols; ++j)
-                if (!cells[y + i][x + j].isEmpty() && piece.filled(i, j))
-                    return false;
+    private boolean isLayerValid() {
+        return layer != null && !layerDirty && layerEpoch == epoch
+                && layerTheme == Klooni.theme && layerRevision == Klooni.theme.getRevision();
+    }
 
-        return true;
+    // Draws the cells into the layer, which is created the first time
+    private void renderLayer(final Batch batch) {
+        final int size = MathUtils.ceil(cellCount * cellSize);
+        if (layer == null) {
+            layer = new FrameBuffer(Pixmap.Format.RGBA8888, size, size, false);
+            layer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+
+            // Frame buffers are upside down
+            layerRegion = new TextureRegion(layer.getColorBufferTexture());
+            layerRegion.flip(false, true);
+            layerProjection.setToOrtho2D(0, 0, size, size);
+        }
+
+        final boolean drawing = batch.isDrawing();
+        if (drawing)
+            batch.end();
+
+        savedProjection.set(batch.getProjectionMatrix());
+        savedTransform.set(batch.getTransformMatrix());
+        batch.setProjectionMatrix(layerProjection);
+        batch.setTransformMatrix(identity);
+
+        layer.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 0);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // Cells never overlap, so their texels are written as they are, and
+        // blending the layer later looks the same as blending every cell
+        final boolean blending = batch.isBlendingEnabled();
+        batch.disableBlending();
+        batch.begin();
+        drawCells(batch);
+        batch.end();
+        if (blending)
+            batch.enableBlending();
+
+        layer.end();
+
+        batch.setProjectionMatrix(savedProjection);
+        batch.setTransformMatrix(savedTransform);
+        if (drawing)
+            batch.begin();
+
+        layerDirty = false;
+        layerTheme = Klooni.theme;
+        layerRevision = Klooni.theme.getRevision();
+        layerEpoch = epoch;
     }
 
     // Returns true iff the piece was put on the board
     public boolean putPiece(Piece piece, int x, int y) {
-        if (!canPutPiece(piece, x, y))
+        if (!state.canPut(piece.shape, x, y))
             return false;
 
-        lastPutPiecePos.set(piece.calculateGravityCenter());
-        for (int i = 0; i < piece.cellRows; ++i)
-            for (int j = 0; j < piece.cellCols; ++j)
+        piece.calculateGravityCenter(lastPutPiecePos);
+        state.put(piece.shape, x, y);
+        for (int i = 0; i < piece.shape.cellRows; ++i)
+            for (int j = 0; j < piece.shape.cellCols; ++j)
                 if (piece.filled(i, j))
-                    cells[y + i][x + j].set(piece.colorIndex);
+                    cells[y + i][x + j].set(piece.shape.colorIndex);
 
+        layerDirty = true;
         return true;
     }
 
@@ -123,28 +237,86 @@ public class Board implements BinSerializable {
     //region Public methods
 
     public void draw(final Batch batch) {
-        batch.setTransformMatrix(batch.getTransformMatrix().translate(pos.x, pos.y, 0));
-
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                cells[i][j].draw(batch);
+        if (mesh != null) {
+            if (layerDirty) {
+                mesh.update(state);
+                layerDirty = false;
+            }
+            mesh.draw(batch, pos.x, pos.y, cellSize, epoch);
+        } else if (cached) {
+            if (isLayerValid()) {
+                layerHits++;
+            } else {
+                renderLayer(batch);
+                layerMisses++;
+            }
+            batch.setColor(Color.WHITE);
+            batch.draw(layerRegion, pos.x, pos.y, layerRegion.getRegionWidth(), layerRegion.getRegionHeight());
+        } else {
+            batch.setTransformMatrix(batch.getTransformMatrix().translate(pos.x, pos.y, 0));
+            drawCells(batch);
+            batch.setTransformMatrix(batch.getTransformMatrix().translate(-pos.x, -pos.y, 0));
+        }
 
-        for (int i = effects.size; i-- != 0; ) {
-            effects.get(i).draw(batch);
-            if (effects.get(i).isDone())
-                effects.removeIndex(i);
+        // Moving the batch flushes it, so it's only done while there are effects
+        if (effects.size != 0) {
+            batch.setTransformMatrix(batch.getTransformMatrix().translate(pos.x, pos.y, 0));
+            for (int i = effects.size; i-- != 0; ) {
+                effects.get(i).draw(batch);
+                if (effects.get(i).isDone())
+                    effectFactories.removeIndex(i).free(effects.removeIndex(i));
+            }
+            batch.setTransformMatrix(batch.getTransformMatrix().translate(-pos.x, -pos.y, 0));
         }
+    }
 
-        batch.setTransformMatrix(batch.getTransformMatrix().translate(-pos.x, -pos.y, 0));
+    // Draws where the given shape could be put, faded, on top of the board cells
+    public void drawHint(final Batch batch, final Shape shape, final int x, final int y) {
+        hintColor.set(Klooni.theme.getCellColor(shape.colorIndex));
+        hintColor.a *= HINT_ALPHA;
+
+        for (int i = 0; i < shape.cellRows; ++i)
+            for (int j = 0; j < shape.cellCols; ++j)
+                if (shape.filled(i, j))
+                    Cell.draw(hintColor, batch,
+                            pos.x + (x + j) * cellSize, pos.y + (y + i) * cellSize, cellSize);
     }
 
     public boolean canPutPiece(Piece piece) {
+        return state.canPutAnywhere(piece.shape);
+    }
+
+    // The rules-only state of the board, without anything to draw
+    public BitBoard getState() {
+        return state;
+    }
+
+    // Features of the empty cells for evaluators and difficulty tuning. Only what
+    // changed since the last call is computed again, and nothing if nothing did
+    public BoardFeatures getFeatures() {
+        features.update();
+        return features;
+    }
+
+    // Snapshot of the cells, sharing the rows that didn't change with the previous one
+    public BoardSnapshot snapshot(final BoardSnapshot previous) {
+        return BoardSnapshot.take(state, previous);
+    }
+
+    // Goes back to the cells of a snapshot, without any effect
+    public void restore(final BoardSnapshot snapshot) {
+        snapshot.restore(state);
         for (int i = 0; i < cellCount; ++i)
             for (int j = 0; j < cellCount; ++j)
-                if (canPutPiece(piece, j, i))
-                    return true;
+                cells[i][j].set(state.getColor(j, i));
 
-        return false;
+        layerDirty = true;
+    }
+
+    // Stores every anchor (as y * cellCount + x) where the piece fits into the given
+    // array, which must have room for cellCount * cellCount items, and returns how many
+    public int legalPlacements(Piece piece, int[] anchors) {
+        return state.legalPlacements(piece.shape, anchors);
     }
 
     public boolean putScreenPiece(final Piece piece) {
@@ -184,52 +356,29 @@ public class Board implements BinSerializable {
     // If the piece is put on the top left corner, all the cells will be cleared.
     // If we first cleared the columns, then the rows wouldn't have been cleared.
     public int clearComplete(final IEffectFactory effect) {
-        int clearCount = 0;
-        boolean[] clearedRows = new boolean[cellCount];
-        boolean[] clearedCols = new boolean[cellCount];
-
-        // Analyze rows and columns that will be cleared
-        for (int i = 0; i < cellCount; ++i) {
-            clearedRows[i] = true;
-            for (int j = 0; j < cellCount; ++j) {
-                if (cells[i][j].isEmpty()) {
-                    clearedRows[i] = false;
-                    break;
-                }
-            }
-            if (clearedRows[i])
-                clearCount++;
-        }
-        for (int j = 0; j < cellCount; ++j) {
-            clearedCols[j] = true;
-            for (int i = 0; i < cellCount; ++i) {
-                if (cells[i][j].isEmpty()) {
-                    clearedCols[j] = false;
-                    break;
-                }
-            }
-            if (clearedCols[j])
-                clearCount++;
-        }
+        final int clearCount = state.findComplete();
         if (clearCount > 0) {
-            // Do clear those rows and columns
-            for (int i = 0; i < cellCount; ++i) {
-                if (clearedRows[i]) {
-                    for (int j = 0; j < cellCount; ++j) {
-                        effects.add(effect.create(cells[i][j], lastPutPiecePos));
-                        cells[i][j].set(-1);
-                    }
+            // Do clear those rows and columns, but only create a single
+            // effect for those cells where a cleared row and column cross
+            for (int k = 0; k < state.getCompleteRowCount(); ++k) {
+                final int i = state.getCompleteRow(k);
+                for (int j = 0; j < cellCount; ++j) {
+                    addEffect(effect, cells[i][j], lastPutPiecePos);
+                    cells[i][j].set(-1);
                 }
             }
 
-            for (int j = 0; j < cellCount; ++j) {
-                if (clearedCols[j]) {
-                    for (int i = 0; i < cellCount; ++i) {
-                        effects.add(effect.create(cells[i][j], lastPutPiecePos));
+            for (int k = 0; k < state.getCompleteColumnCount(); ++k) {
+                final int j = state.getCompleteColumn(k);
+                for (int i = 0; i < cellCount; ++i) {
+                    if (!state.isRowComplete(i)) {
+                        addEffect(effect, cells[i][j], lastPutPiecePos);
                         cells[i][j].set(-1);
                     }
                 }
             }
+            state.clearComplete();
+            layerDirty = true;
         }
 
         return clearCount;
@@ -240,42 +389,107 @@ public class Board implements BinSerializable {
 
         for (int i = 0; i < cellCount; ++i) {
             for (int j = 0; j < cellCount; ++j) {
-                if (!cells[i][j].isEmpty()) {
-                    effects.add(effect.create(cells[i][j], culprit));
+                if (!state.isEmpty(j, i)) {
+                    addEffect(effect, cells[i][j], culprit);
                     cells[i][j].set(-1);
                 }
             }
         }
+        state.clear();
+        layerDirty = true;
     }
 
     public boolean effectsDone() {
         return effects.size == 0;
     }
 
+    // Whether the cells are drawn once to a texture until they change, rather than
+    // one by one every frame. Cached boards must be disposed once no longer used
+    public void setCached(boolean cached) {
+        this.cached = cached;
+        layerDirty = true;
+    }
+
+    // Whether the cells are drawn by a single mesh, which costs the same every frame
+    // no matter the size of the board, and falls back to caching it if it can't
+    // be used. Meshed boards must be disposed once no longer used too
+    public void setMeshed(boolean meshed) {
+        if (meshed && mesh == null) {
+            mesh = new BoardMesh(cellCount);
+            if (!mesh.isUsable()) {
+                mesh.dispose();
+                mesh = null;
+                setCached(true);
+            }
+        } else if (!meshed && mesh != null) {
+            mesh.dispose();
+            mesh = null;
+        }
+        layerDirty = true;
+    }
+
+    // Frees the layer or mesh, and gives back the effects that were still running
+    public void dispose() {
+        if (layer != null) {
+            layer.dispose();
+            layer = null;
+        }
+        if (mesh != null) {
+            mesh.dispose();
+            mesh = null;
+        }
+        for (int i = 0; i < effects.size; ++i)
+            effectFactories.get(i).free(effects.get(i));
+
+        effects.clear();
+        effectFactories.clear();
+    }
+
+    //endregion
+
+    //region Statistics
+
+    // Frames that drew the cached layer without drawing any cell
+    public long getLayerHits() {
+        return layerHits;
+    }
+
+    // Frames that had to draw every cell into the layer first
+    public long getLayerMisses() {
+        return layerMisses;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Marks every layer to be drawn again, since the GL context that held them was lost
+    public static void invalidateLayers() {
+        epoch++;
+    }
+
     //endregion
 
     //region Serialization
 
     @Override
     public void write(DataOutputStream out) throws IOException {
-        // Cell count, cells in row-major order
-        out.writeInt(cellCount);
-        for (int i = 0; i < cellCount; ++i)
-            for (int j = 0; j < cellCount; ++j)
-                cells[i][j].write(out);
+        state.write(out);
     }
 
     @Override
     public void read(DataInputStream in) throws IOException {
-        // If the saved cell count does not match the current cell count,
-        // then an IOException is thrown since the data saved was invalid
-        final int savedCellCount = in.readInt();
-        if (savedCellCount != cellCount)
-            throw new IOException("Invalid cellCount saved.");
-
+        state.read(in);
         for (int i = 0; i < cellCount; ++i)
             for (int j = 0; j < cellCount; ++j)
-                cells[i][j].read(in);
+                cells[i][j].set(state.getColor(j, i));
+
+        layerDirty = true;
+    }
+
+    // The cell count of a board written to the stream, before reading the board itself
+    public static int readSize(DataInputStream in) throws IOException {
+        return BitBoard.readSize(in);
     }
 
     //endregion
@@ -0,0 +1,265 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+
+import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.Theme;
+import dev.lonami.klooni.engine.BitBoard;
+
+// Draws every cell of a board with a single call. The quads never move, so they're
+// kept on one static vertex buffer, and only the color index of the cells that
+// changed is written. The index is resolved to a color in the shader through a
+// palette texture with the theme colors, so switching themes only uploads the palette
+class BoardMesh {
+
+    //region Members
+
+    private final int cellCount;
+
+    // Position (in cells), corner of the cell texture and palette index of every vertex
+    private final Mesh mesh;
+    private final float[] vertices;
+
+    // The index of every cell as it is on the vertices (0 is empty, i + 1 is color i)
+    private final byte[] indices;
+
+    private final ShaderProgram shader;
+
+    // One texel per color, the empty cell first
+    private Texture palette;
+    private Pixmap palettePixels;
+    private Theme paletteTheme;
+    private int paletteRevision;
+    private int paletteEpoch;
+
+    private final Matrix4 combined = new Matrix4();
+
+    //endregion
+
+    //region Static members
+
+    private static final int FLOATS_PER_VERTEX = 5;
+    private static final int INDEX_OFFSET = 4;
+
+    private static final String VERTEX_SHADER = ""
+            + "attribute vec2 a_position;\n"
+            + "attribute vec2 a_corner;\n"
+            + "attribute float a_index;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "uniform vec4 u_region;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "varying float v_index;\n"
+            + "void main() {\n"
+            + "    v_texCoords = vec2(mix(u_region.x, u_region.z, a_corner.x), mix(u_region.w, u_region.y, a_corner.y));\n"
+            + "    v_index = a_index;\n"
+            + "    gl_Position = u_projTrans * vec4(a_position, 0.0, 1.0);\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER = ""
+            + "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "uniform sampler2D u_texture;\n"
+            + "uniform sampler2D u_palette;\n"
+            + "uniform float u_paletteSize;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "varying float v_index;\n"
+            + "void main() {\n"
+            + "    vec4 color = texture2D(u_palette, vec2((v_index + 0.5) / u_paletteSize, 0.5));\n"
+            + "    gl_FragColor = color * texture2D(u_texture, v_texCoords);\n"
+            + "}\n";
+
+    //endregion
+
+    //region Constructor
+
+    // The vertex indices are 16 bits, so up to 128x128 boards fit on a single mesh
+    BoardMesh(int cellCount) {
+        this.cellCount = cellCount;
+
+        final int cells = cellCount * cellCount;
+        vertices = new float[cells * 4 * FLOATS_PER_VERTEX];
+        final short[] triangles = new short[cells * 6];
+        for (int i = 0, v = 0, t = 0; i < cellCount; ++i) {
+            for (int j = 0; j < cellCount; ++j) {
+                final int first = v / FLOATS_PER_VERTEX;
+                v = putVertex(v, j, i, 0, 0);
+                v = putVertex(v, j + 1, i, 1, 0);
+                v = putVertex(v, j + 1, i + 1, 1, 1);
+                v = putVertex(v, j, i + 1, 0, 1);
+
+                triangles[t++] = (short) first;
+                triangles[t++] = (short) (first + 1);
+                triangles[t++] = (short) (first + 2);
+                triangles[t++] = (short) (first + 2);
+                triangles[t++] = (short) (first + 3);
+                triangles[t++] = (short) first;
+            }
+        }
+        indices = new byte[cells];
+
+        mesh = new Mesh(true, cells * 4, cells * 6,
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, "a_position"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 2, "a_corner"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 1, "a_index"));
+        mesh.setVertices(vertices);
+        mesh.setIndices(triangles);
+
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled())
+            Gdx.app.error("BoardMesh", "Could not compile the board shader: " + shader.getLog());
+    }
+
+    private int putVertex(int offset, float x, float y, float cornerX, float cornerY) {
+        vertices[offset] = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = cornerX;
+        vertices[offset + 3] = cornerY;
+        vertices[offset + INDEX_OFFSET] = 0;
+        return offset + FLOATS_PER_VERTEX;
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Builds the palette again if the theme changed or the GL context was lost
+    private void updatePalette(final Theme theme, final int epoch) {
+        if (palette != null && paletteTheme == theme
+                && paletteRevision == theme.getRevision() && paletteEpoch == epoch)
+            return;
+
+        final int size = theme.getCellColorCount() + 1;
+        if (palettePixels == null || palettePixels.getWidth() != size) {
+            if (palettePixels != null)
+                palettePixels.dispose();
+            palettePixels = new Pixmap(size, 1, Pixmap.Format.RGBA8888);
+            palettePixels.setBlending(Pixmap.Blending.None);
+        }
+        for (int i = 0; i < size; ++i)
+            palettePixels.drawPixel(i, 0, Color.rgba8888(theme.getCellColor(i - 1)));
+
+        // A lost context lost the texture too, and a new size needs a new one
+        if (palette == null || paletteEpoch != epoch || palette.getWidth() != size) {
+            if (palette != null)
+                palette.dispose();
+            palette = new Texture(palettePixels);
+        } else {
+            palette.draw(palettePixels, 0, 0);
+        }
+
+        paletteTheme = theme;
+        paletteRevision = theme.getRevision();
+        paletteEpoch = epoch;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    boolean isUsable() {
+        return shader.isCompiled();
+    }
+
+    // Writes the index of the cells that differ from the state, and
+    // uploads the vertices between the first and last that changed
+    void update(final BitBoard state) {
+        int first = -1;
+        int last = -1;
+        for (int i = 0, cell = 0; i < cellCount; ++i) {
+            for (int j = 0; j < cellCount; ++j, ++cell) {
+                final byte index = (byte) (state.getColor(j, i) + 1);
+                if (indices[cell] != index) {
+                    indices[cell] = index;
+                    int offset = cell * 4 * FLOATS_PER_VERTEX + INDEX_OFFSET;
+                    for (int k = 0; k < 4; ++k, offset += FLOATS_PER_VERTEX)
+                        vertices[offset] = index;
+
+                    if (first == -1)
+                        first = cell;
+                    last = cell;
+                }
+            }
+        }
+
+        if (first != -1) {
+            final int offset = first * 4 * FLOATS_PER_VERTEX;
+            mesh.updateVertices(offset, vertices, offset, (last - first + 1) * 4 * FLOATS_PER_VERTEX);
+        }
+    }
+
+    // Draws the board with its bottom left corner at (x, y), in the space of the batch
+    void draw(final Batch batch, final float x, final float y, final float cellSize, final int epoch) {
+        final Theme theme = Klooni.theme;
+        updatePalette(theme, epoch);
+
+        final boolean drawing = batch.isDrawing();
+        if (drawing)
+            batch.end();
+
+        combined.set(batch.getProjectionMatrix()).mul(batch.getTransformMatrix())
+                .translate(x, y, 0).scale(cellSize, cellSize, 1);
+
+        final TextureRegion cell = theme.cellTexture;
+        palette.bind(1);
+        cell.getTexture().bind(0); // Leaves unit 0 active, as the batch expects
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        shader.begin();
+        shader.setUniformMatrix("u_projTrans", combined);
+        shader.setUniformf("u_region", cell.getU(), cell.getV(), cell.getU2(), cell.getV2());
+        shader.setUniformi("u_texture", 0);
+        shader.setUniformi("u_palette", 1);
+        shader.setUniformf("u_paletteSize", palette.getWidth());
+        mesh.render(shader, GL20.GL_TRIANGLES);
+        shader.end();
+
+        if (drawing)
+            batch.begin();
+    }
+
+    void dispose() {
+        mesh.dispose();
+        shader.dispose();
+        if (palette != null) {
+            palette.dispose();
+            palette = null;
+        }
+        if (palettePixels != null) {
+            palettePixels.dispose();
+            palettePixels = null;
+        }
+    }
+
+    //endregion
+}
@@ -31,9 +31,14 @@ public class BonusParticleHandler {
     private final Array<BonusParticle> particles;
     private final Label.LabelStyle labelStyle;
 
+    // The bonus font only has digits, so messages use the small font instead
+    private final Label.LabelStyle messageStyle;
+
     public BonusParticleHandler(final Klooni game) {
         labelStyle = new Label.LabelStyle();
         labelStyle.font = game.skin.getFont("font_bonus");
+        messageStyle = new Label.LabelStyle();
+        messageStyle.font = game.skin.getFont("font_small");
         particles = new Array<BonusParticle>();
     }
 
@@ -41,6 +46,10 @@ public class BonusParticleHandler {
         particles.add(new BonusParticle(pos, score, labelStyle));
     }
 
+    public void addMessage(final Vector2 pos, final String text) {
+        particles.add(new BonusParticle(pos, text, messageStyle));
+    }
+
     public void run(final Batch batch) {
         BonusParticle particle;
         Iterator<BonusParticle> iterator = particles.iterator();
@@ -18,8 +18,8 @@
 package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 
 import java.io.DataInputStream;
@@ -70,6 +70,11 @@ public class Cell implements BinSerializable {
         return Klooni.theme.getCellColor(colorIndex).cpy();
     }
 
+    // The color from the theme itself, which must not be modified
+    public Color getColor() {
+        return Klooni.theme.getCellColor(colorIndex);
+    }
+
     boolean isEmpty() {
         return colorIndex < 0;
     }
@@ -86,7 +91,7 @@ public class Cell implements BinSerializable {
     }
 
     // Custom texture
-    public static void draw(final Texture texture, final Color color, final Batch batch,
+    public static void draw(final TextureRegion texture, final Color color, final Batch batch,
                             final float x, final float y, final float size) {
         batch.setColor(color);
         batch.draw(texture, x, y, size, size);
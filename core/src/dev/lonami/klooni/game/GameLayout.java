@@ -75,7 +75,7 @@ public class GameLayout {
     // add them to a table (and would probably be harder), this approach
     // was used. Note that all these are using Y-up coordinates.
     void update(BaseScorer scorer) {
-        float cupSize = Math.min(scoreHeight, scorer.cupTexture.getHeight());
+        float cupSize = Math.min(scoreHeight, scorer.cupTexture.getRegionHeight());
         final Rectangle area = new Rectangle(
                 marginWidth, pieceHolderHeight + boardHeight,
                 availableWidth, scoreHeight);
@@ -31,17 +31,34 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.GameSnapshot;
+import dev.lonami.klooni.engine.Hand;
+import dev.lonami.klooni.engine.HandGenerator;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 // A holder of pieces that can be drawn on screen.
 // Pieces can be picked up from it and dropped on a board.
+// Which shapes are on the hand is up to the rules, and the
+// pieces shown are only kept in sync with them.
 public class PieceHolder implements BinSerializable {
 
     //region Members
 
     final Rectangle area;
+    private final Hand hand;
+
+    // Deals the shapes of this game only, so it can be saved and replayed
+    private final SeededRandom random;
+
+    // Decides which shapes are dealt on every refill
+    private HandGenerator generator;
     private final Piece[] pieces;
 
+    // Pieces are reused whenever the hand is refilled, only their shape changes
+    private final Piece[] pieceViews;
+
     private final Sound pieceDropSound;
     private final Sound invalidPieceDropSound;
     private final Sound takePiecesSound;
@@ -56,9 +73,12 @@ public class PieceHolder implements BinSerializable {
     // Needed after a piece is dropped, so it can go back
     private final Rectangle[] originalPositions;
 
-    // The size the cells will adopt once picked
+    // The size the cells will adopt once picked, which is the one on the board
     private final float pickedCellSize;
 
+    // The smallest the cells may be while on the holder, which only depends on its area
+    private float minRestingCellSize;
+
     // Every piece holder belongs to a specific board
     private final Board board;
 
@@ -68,16 +88,24 @@ public class PieceHolder implements BinSerializable {
 
     private static final float DRAG_SPEED = 0.5f; // Interpolation value ((pos -> new) / frame)
 
+    // The longest shapes span this many cells, and must still fit on their part of the holder
+    private static final int MAX_SHAPE_CELLS = 5;
+
     //endregion
 
     //region Constructor
 
-    public PieceHolder(final GameLayout layout, final Board board,
-                       final int pieceCount, final float pickedCellSize) {
+    public PieceHolder(final GameLayout layout, final Board board, final int pieceCount,
+                       final float pickedCellSize, final SeededRandom random,
+                       final HandGenerator generator) {
         this.board = board;
+        this.random = random;
+        this.generator = generator;
         enabled = true;
         count = pieceCount;
+        hand = new Hand(count);
         pieces = new Piece[count];
+        pieceViews = new Piece[count];
         originalPositions = new Rectangle[count];
 
         pieceDropSound = Gdx.audio.newSound(Gdx.files.internal("sound/piece_drop.mp3"));
@@ -99,20 +127,10 @@ public class PieceHolder implements BinSerializable {
 
     //region Private methods
 
-    // Determines whether all the pieces have been put (and the "hand" is finished)
-    private boolean handFinished() {
-        for (int i = 0; i < count; ++i)
-            if (pieces[i] != null)
-                return false;
-
-        return true;
-    }
-
     // Takes a new set of pieces. Should be called when there are no more piece left
     private void takeMore() {
-        for (int i = 0; i < count; ++i)
-            pieces[i] = Piece.random();
-        updatePiecesStartLocation();
+        generator.deal(board.getState(), hand, random);
+        updatePieces();
 
         if (Klooni.soundsEnabled()) {
             // Random pitch so it's not always the same sound
@@ -120,8 +138,26 @@ public class PieceHolder implements BinSerializable {
         }
     }
 
+    // Updates the pieces shown for the shapes on the hand
+    private void updatePieces() {
+        for (int i = 0; i < count; ++i) {
+            final Shape shape = hand.get(i);
+            if (shape == null) {
+                pieces[i] = null;
+            } else {
+                if (pieceViews[i] == null)
+                    pieceViews[i] = new Piece(shape);
+
+                pieces[i] = pieceViews[i];
+                pieces[i].shape = shape;
+            }
+        }
+        updatePiecesStartLocation();
+    }
+
     private void updatePiecesStartLocation() {
         float perPieceWidth = area.width / count;
+        minRestingCellSize = Math.min(perPieceWidth, area.height) / MAX_SHAPE_CELLS;
         Piece piece;
         for (int i = 0; i < count; ++i) {
             piece = pieces[i];
@@ -130,11 +166,13 @@ public class PieceHolder implements BinSerializable {
 
             // Set the absolute position on screen and the cells' cellSize
             // Also clamp the cell size to be the picked size as maximum, or
-            // it would be too big in some cases.
+            // it would be too big in some cases. It never goes below what the
+            // longest shape could use though, or tiny board cells would make
+            // the pieces impossible to grab
             piece.pos.set(area.x + i * perPieceWidth, area.y);
-            piece.cellSize = Math.min(Math.min(
-                    perPieceWidth / piece.cellCols,
-                    area.height / piece.cellRows), pickedCellSize);
+            piece.cellSize = Math.max(Math.min(Math.min(
+                    perPieceWidth / piece.shape.cellCols,
+                    area.height / piece.shape.cellRows), pickedCellSize), minRestingCellSize);
 
             // Center the piece on the X and Y axes. For this we see how
             // much up we can go, this is, (area.height - piece.height) / 2
@@ -187,13 +225,41 @@ public class PieceHolder implements BinSerializable {
         return result;
     }
 
+    // Changes how the next hands will be dealt
+    public void setHandGenerator(HandGenerator generator) {
+        this.generator = generator;
+    }
+
+    public HandGenerator getHandGenerator() {
+        return generator;
+    }
+
+    // The rules-only shapes on the holder, without anything to draw
+    public Hand getHand() {
+        return hand;
+    }
+
+    // Where the shapes dealt are at, to be able to deal the same ones again
+    public long getRandomState() {
+        return random.getState();
+    }
+
+    // Goes back to the pieces of a snapshot, which will also deal the same shapes
+    // it did back then. The board and score are left for the caller to restore
+    public void restore(final GameSnapshot snapshot) {
+        snapshot.restoreHand(hand);
+        random.setState(snapshot.randomState);
+        heldPiece = -1;
+        updatePieces();
+    }
+
     // If no piece is currently being held, the area will be 0
     private int calculateHeldPieceArea() {
-        return heldPiece > -1 ? pieces[heldPiece].calculateArea() : 0;
+        return heldPiece > -1 ? pieces[heldPiece].shape.area : 0;
     }
 
     private Vector2 calculateHeldPieceCenter() {
-        return heldPiece > -1 ? pieces[heldPiece].calculateGravityCenter() : null;
+        return heldPiece > -1 ? pieces[heldPiece].calculateGravityCenter(new Vector2()) : null;
     }
 
     // Tries to drop the piece on the given board. As a result, it
@@ -208,11 +274,12 @@ public class PieceHolder implements BinSerializable {
                 if (Klooni.soundsEnabled()) {
                     // The larger the piece size, the smaller the pitch
                     // Considering 10 cells to be the largest, 1.1 highest pitch, 0.7 lowest
-                    float pitch = 1.104f - pieces[heldPiece].calculateArea() * 0.04f;
+                    float pitch = 1.104f - pieces[heldPiece].shape.area * 0.04f;
                     pieceDropSound.play(1, pitch, 0);
                 }
 
                 result = new DropResult(calculateHeldPieceArea(), calculateHeldPieceCenter());
+                hand.remove(heldPiece);
                 pieces[heldPiece] = null;
             } else {
                 if (Klooni.soundsEnabled())
@@ -222,7 +289,7 @@ public class PieceHolder implements BinSerializable {
             }
 
             heldPiece = -1;
-            if (handFinished())
+            if (hand.isFinished())
                 takeMore();
         } else
             result = new DropResult(false);
@@ -247,7 +314,7 @@ public class PieceHolder implements BinSerializable {
                 // Center the new piece position horizontally
                 // and push it up by it's a cell (arbitrary) vertically, thus
                 // avoiding to cover it with the finger (issue on Android devices)
-                mouse.sub(piece.getRectangle().width * 0.5f, -pickedCellSize);
+                mouse.sub(piece.getRectangle().width * 0.5f, -Math.max(pickedCellSize, minRestingCellSize));
             }
             if (Klooni.shouldSnapToGrid())
                 mouse.set(board.snapToGrid(piece, mouse));
@@ -287,29 +354,16 @@ public class PieceHolder implements BinSerializable {
 
     @Override
     public void write(DataOutputStream out) throws IOException {
-        // Piece count, false if piece == null, true + piece if piece != null
-        out.writeInt(count);
-        for (int i = 0; i < count; ++i) {
-            if (pieces[i] == null) {
-                out.writeBoolean(false);
-            } else {
-                out.writeBoolean(true);
-                pieces[i].write(out);
-            }
-        }
+        // hand, random
+        hand.write(out);
+        random.write(out);
     }
 
     @Override
     public void read(DataInputStream in) throws IOException {
-        // If the saved piece count does not match the current piece count,
-        // then an IOException is thrown since the data saved was invalid
-        final int savedPieceCount = in.readInt();
-        if (savedPieceCount != count)
-            throw new IOException("Invalid piece count saved.");
-
-        for (int i = 0; i < count; i++)
-            pieces[i] = in.readBoolean() ? Piece.read(in) : null;
-        updatePiecesStartLocation();
+        hand.read(in);
+        random.read(in);
+        updatePieces();
     }
 
     //endregion
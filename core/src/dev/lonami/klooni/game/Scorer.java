@@ -22,6 +22,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.Scoring;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 // Used to keep track of the current and maximum
@@ -39,7 +40,7 @@ public class Scorer extends BaseScorer implements BinSerializable {
 
     // The board size is required when calculating the score
     public Scorer(final Klooni game, GameLayout layout) {
-        super(game, layout, Klooni.getMaxScore());
+        super(game, layout, new Scoring(), Klooni.getMaxScore());
         highScore = Klooni.getMaxScore();
     }
 
@@ -49,18 +50,13 @@ public class Scorer extends BaseScorer implements BinSerializable {
 
     public void saveScore() {
         if (isNewRecord()) {
-            Klooni.setMaxScore(currentScore);
+            Klooni.setMaxScore(getCurrentScore());
         }
     }
 
     @Override
     protected boolean isNewRecord() {
-        return currentScore > highScore;
-    }
-
-    @Override
-    public boolean isGameOver() {
-        return false;
+        return getCurrentScore() > highScore;
     }
 
     //endregion
@@ -70,13 +66,13 @@ public class Scorer extends BaseScorer implements BinSerializable {
     @Override
     public void write(DataOutputStream out) throws IOException {
         // currentScore, highScore
-        out.writeInt(currentScore);
+        out.writeInt(getCurrentScore());
         out.writeInt(highScore);
     }
 
     @Override
     public void read(DataInputStream in) throws IOException {
-        currentScore = in.readInt();
+        scoring.setCurrentScore(in.readInt());
         highScore = in.readInt();
     }
 
@@ -18,7 +18,6 @@
 package dev.lonami.klooni.game;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.TimeUtils;
@@ -28,34 +27,30 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.Clock;
+import dev.lonami.klooni.engine.TimeScoring;
 import dev.lonami.klooni.serializer.BinSerializable;
 
 public class TimeScorer extends BaseScorer implements BinSerializable {
 
     //region Members
 
+    private final TimeScoring timeScoring;
     private final Label timeLeftLabel;
 
-    private long startTime;
     private int highScore;
 
-    // Indicates where we would die in time. Score adds to this, so we take
-    // longer to die. To get the "score" we simply calculate `deadTime - startTime`
-    private long deadTime;
-
-    // We need to know when the game was paused to "stop" counting
-    private long pauseTime;
-    private int pausedTimeLeft;
-
     //endregion
 
     //region Static variables
 
-    private static final long START_TIME = 30 * 1000000000L;
-
-    // 2 seconds every 10 points: (2/10)*10^9 to get the nanoseconds
-    private static final double SCORE_TO_NANOS = 0.2e+09d;
-    private static final double NANOS_TO_SECONDS = 1e-09d;
+    // The time on the rules is the same the rest of the game uses
+    public static final Clock GDX_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return TimeUtils.nanoTime();
+        }
+    };
 
     //endregion
 
@@ -63,7 +58,12 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
 
     // The board size is required when calculating the score
     public TimeScorer(final Klooni game, GameLayout layout) {
-        super(game, layout, Klooni.getMaxTimeScore());
+        this(game, layout, new TimeScoring(GDX_CLOCK));
+    }
+
+    private TimeScorer(final Klooni game, GameLayout layout, final TimeScoring timeScoring) {
+        super(game, layout, timeScoring, Klooni.getMaxTimeScore());
+        this.timeScoring = timeScoring;
         highScore = Klooni.getMaxTimeScore();
 
         Label.LabelStyle labelStyle = new Label.LabelStyle();
@@ -71,48 +71,12 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
         timeLeftLabel = new Label("", labelStyle);
         timeLeftLabel.setAlignment(Align.center);
         layout.updateTimeLeftLabel(timeLeftLabel);
-
-        startTime = TimeUtils.nanoTime();
-        deadTime = startTime + START_TIME;
-
-        pausedTimeLeft = -1;
-    }
-
-    //endregion
-
-    //region Private methods
-
-    private int nanosToSeconds(long nano) {
-        return MathUtils.ceil((float) (nano * NANOS_TO_SECONDS));
-    }
-
-    private long scoreToNanos(int score) {
-        return (long) (score * SCORE_TO_NANOS);
-    }
-
-    private int getTimeLeft() {
-        return Math.max(nanosToSeconds(deadTime - TimeUtils.nanoTime()), 0);
     }
 
     //endregion
 
     //region Public methods
 
-    @Override
-    public int addBoardScore(int stripsCleared, int boardSize) {
-        // Only clearing strips adds extra time
-        long extraTime = scoreToNanos(calculateClearScore(stripsCleared, boardSize));
-        deadTime += extraTime;
-        super.addBoardScore(stripsCleared, boardSize);
-
-        return nanosToSeconds(extraTime);
-    }
-
-    @Override
-    public boolean isGameOver() {
-        return TimeUtils.nanoTime() > deadTime;
-    }
-
     @Override
     public String gameOverReason() {
         return "time is up";
@@ -132,28 +96,19 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
 
     @Override
     public void pause() {
-        pauseTime = TimeUtils.nanoTime();
-        pausedTimeLeft = getTimeLeft();
+        timeScoring.pause();
     }
 
     @Override
     public void resume() {
-        if (pauseTime != 0L) {
-            long difference = TimeUtils.nanoTime() - pauseTime;
-            startTime += difference;
-            deadTime += difference;
-
-            pauseTime = 0L;
-            pausedTimeLeft = -1;
-        }
+        timeScoring.resume();
     }
 
     @Override
     public void draw(SpriteBatch batch) {
         super.draw(batch);
 
-        int timeLeft = pausedTimeLeft < 0 ? getTimeLeft() : pausedTimeLeft;
-        timeLeftLabel.setText(Integer.toString(timeLeft));
+        timeLeftLabel.setText(Integer.toString(timeScoring.getTimeLeft()));
         timeLeftLabel.setColor(Klooni.theme.currentScore);
         timeLeftLabel.draw(batch, 1f);
     }
@@ -165,7 +120,7 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
     @Override
     public void write(DataOutputStream out) throws IOException {
         // current/dead offset ("how long until we die"), highScore
-        out.writeLong(TimeUtils.nanoTime() - startTime);
+        out.writeLong(timeScoring.getElapsedTime());
         out.writeInt(highScore);
     }
 
@@ -173,8 +128,7 @@ public class TimeScorer extends BaseScorer implements BinSerializable {
     public void read(DataInputStream in) throws IOException {
         // We need to use the offset, since the start time
         // is different and we couldn't save absolute values
-        long deadOffset = in.readLong();
-        deadTime = startTime + deadOffset;
+        timeScoring.setDeadOffset(in.readLong());
         highScore = in.readInt();
     }
 
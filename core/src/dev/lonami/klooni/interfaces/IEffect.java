@@ -2,10 +2,17 @@ package dev.lonami.klooni.interfaces;
 
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
 
 import dev.lonami.klooni.game.Cell;
 
-public interface IEffect {
+/**
+ * IEffect is a single cell vanishing, created by its {@link IEffectFactory}.
+ * <p>
+ * Effects are pooled, so once done they are given back to their factory, which
+ * calls {@link #reset()} before the same instance is used again for another cell.
+ */
+public interface IEffect extends Pool.Poolable {
     void setInfo(Cell deadCell, Vector2 culprit);
 
     void draw(Batch batch);
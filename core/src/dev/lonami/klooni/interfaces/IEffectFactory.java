@@ -25,8 +25,10 @@ import dev.lonami.klooni.game.Cell;
  * IEffectFactory interface has to be implemented for each effect.
  * <p>
  * It tells the name and the price of the effect and will create it, when needed.
+ * Created effects come from a pool, and must be freed to it once they're done.
  *
  * @see IEffect
+ * @see dev.lonami.klooni.effects.PooledEffectFactory
  */
 public interface IEffectFactory {
     String getName();
@@ -36,4 +38,16 @@ public interface IEffectFactory {
     int getPrice();
 
     IEffect create(final Cell deadCell, final Vector2 culprit);
+
+    void free(final IEffect effect);
+
+    /**
+     * @return how many effects were ever created, whether they're in use or free.
+     */
+    int getPoolSize();
+
+    /**
+     * @return the most effects that were in use at once.
+     */
+    int getPoolHighWater();
 }
@@ -147,6 +147,38 @@ class CustomizeScreen implements Screen {
         });
         optionsGroup.addActor(snapButton);
 
+        // Hints on/off
+        final SoftButton hintsButton = new SoftButton(3, "star_texture");
+        hintsButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                buyBand.setTempText("hints " + (Klooni.toggleHints() ? "on" : "off"));
+            }
+        });
+        optionsGroup.addActor(hintsButton);
+
+        // Board size for the next games, a saved game keeps its own
+        final SoftButton boardSizeButton = new SoftButton(0, "board_size_texture");
+        boardSizeButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                final int size = Klooni.cycleBoardSize();
+                buyBand.setTempText("board " + size + "x" + size
+                        + (GameScreen.hasSavedData() ? " for new games" : ""));
+            }
+        });
+        optionsGroup.addActor(boardSizeButton);
+
+        // How the hands are dealt on the next games
+        final SoftButton dealerButton = new SoftButton(1, "deal_texture");
+        dealerButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                buyBand.setTempText("hands: " + Klooni.cycleDealer());
+            }
+        });
+        optionsGroup.addActor(dealerButton);
+
         // Issues
         final SoftButton issuesButton = new SoftButton(3, "issues_texture");
         issuesButton.addListener(new ChangeListener() {
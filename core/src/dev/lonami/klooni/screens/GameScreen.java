@@ -25,17 +25,29 @@ import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.DifficultyHandGenerator;
+import dev.lonami.klooni.engine.FeasibilityCache;
+import dev.lonami.klooni.engine.GameSnapshot;
+import dev.lonami.klooni.engine.HandGenerator;
+import dev.lonami.klooni.engine.HandSolver;
+import dev.lonami.klooni.engine.Hint;
+import dev.lonami.klooni.engine.HintService;
+import dev.lonami.klooni.engine.RandomHandGenerator;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.SolvableHandGenerator;
+import dev.lonami.klooni.engine.UndoHistory;
 import dev.lonami.klooni.game.BaseScorer;
 import dev.lonami.klooni.game.Board;
 import dev.lonami.klooni.game.BonusParticleHandler;
 import dev.lonami.klooni.game.GameLayout;
-import dev.lonami.klooni.game.Piece;
 import dev.lonami.klooni.game.PieceHolder;
 import dev.lonami.klooni.game.Scorer;
 import dev.lonami.klooni.game.TimeScorer;
@@ -55,6 +67,24 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     private final Board board;
     private final PieceHolder holder;
 
+    // Remembers where the pieces on the holder fit to quickly tell if it's game over
+    private final FeasibilityCache feasibility;
+
+    // Tells in advance when the pieces left can't all be put in any order
+    private final HandSolver handSolver;
+    private boolean warnedNoWayOut;
+
+    // Looks for the best next move while the player thinks about theirs
+    private final HintService hints;
+
+    // Whether the hints know about the current position, which they
+    // are only told about while shown so no search is wasted otherwise
+    private boolean hintRequested;
+
+    // Every move made on the score mode, so they can be undone and redone. It's only
+    // kept in memory, so a loaded game can't go back further than where it was saved
+    private final UndoHistory history;
+
     private final SpriteBatch batch;
     private final Sound gameOverSound;
 
@@ -76,9 +106,26 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     //region Static members
 
-    private final static int BOARD_SIZE = 10;
     private final static int HOLDER_PIECE_COUNT = 3;
 
+    // Time the hand solver may take after every drop, so it never drops a frame
+    private final static long HAND_SOLVER_BUDGET_NANOS = 4000000L;
+
+    // Time the hints may take every frame when there's no runner to search in the background
+    private final static long HINT_SLICE_NANOS = 2000000L;
+
+    // Time a hand may take to be dealt, and the hands weighed to pick one by difficulty
+    private final static long DEAL_BUDGET_NANOS = 2000000L;
+    private final static int DEAL_CANDIDATES = 24;
+
+    // Moves that can be undone. Snapshots share the rows that don't change,
+    // so even big boards only cost a few kilobytes for all of them
+    private final static int UNDO_LEVELS = 256;
+
+    // Boards at least this big draw from a single mesh. Smaller ones are cheaper
+    // cached as a texture, since redrawing it on every move costs little
+    private final static int MESHED_BOARD_SIZE = 32;
+
     final static int GAME_MODE_SCORE = Klooni.GAME_MODE_SCORE;
     final static int GAME_MODE_TIME = Klooni.GAME_MODE_TIME;
     final static int GAME_MODE_CASINO = Klooni.GAME_MODE_CASINO;
@@ -103,6 +150,13 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
     // Constructor with bet amount for casino mode
     GameScreen(final Klooni game, final int gameMode, final boolean loadSave, final int betAmount) {
+        this(game, gameMode, loadSave, betAmount, TimeUtils.nanoTime());
+    }
+
+    // The seed determines every piece that will be dealt, unless a save is loaded,
+    // in which case the game continues the sequence it was following when saved
+    GameScreen(final Klooni game, final int gameMode, final boolean loadSave,
+               final int betAmount, final long seed) {
         batch = new SpriteBatch();
         this.game = game;
         this.gameMode = gameMode;
@@ -123,9 +177,33 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
                 throw new RuntimeException("Unknown game mode given: " + gameMode);
         }
 
-        board = new Board(layout, BOARD_SIZE);
-        holder = new PieceHolder(layout, board, HOLDER_PIECE_COUNT, board.cellSize);
-        pauseMenu = new PauseMenuStage(layout, game, scorer, gameMode);
+        // A saved game goes on with the board size it was played on,
+        // so changing the setting only applies to the new games
+        final boolean loading = loadSave && gameMode == GAME_MODE_SCORE;
+        board = new Board(layout, loading ? getSavedBoardSize() : Klooni.getBoardSize());
+        if (board.cellCount >= MESHED_BOARD_SIZE)
+            board.setMeshed(true);
+        else
+            board.setCached(true);
+        holder = new PieceHolder(layout, board, HOLDER_PIECE_COUNT, board.cellSize,
+                new SeededRandom(seed), createDealer(Klooni.getDealer(), board.cellCount));
+        feasibility = new FeasibilityCache(board.getState(), holder.getHand());
+        handSolver = new HandSolver(board.cellCount, HOLDER_PIECE_COUNT, TimeScorer.GDX_CLOCK);
+        hints = new HintService(board.cellCount, HOLDER_PIECE_COUNT, TimeScorer.GDX_CLOCK);
+        if (game.hintRunner != null)
+            game.hintRunner.start(hints);
+
+        history = new UndoHistory(UNDO_LEVELS + 1);
+        if (gameMode == GAME_MODE_SCORE) {
+            pauseMenu = new PauseMenuStage(layout, game, scorer, gameMode, new Runnable() {
+                @Override
+                public void run() {
+                    undo();
+                }
+            });
+        } else {
+            pauseMenu = new PauseMenuStage(layout, game, scorer, gameMode);
+        }
         bonusParticleHandler = new BonusParticleHandler(game);
 
         gameOverSound = Gdx.audio.newSound(Gdx.files.internal("sound/game_over.mp3"));
@@ -140,20 +218,93 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
                 // Ensure that there is no old save, we don't want to load it, thus delete it
                 deleteSave();
             }
+            recordMove();
         }
+        requestHint();
     }
 
     //endregion
 
     //region Private methods
 
+    // The hand generator for the dealer picked on the settings, random if it's unknown
+    private static HandGenerator createDealer(String name, int boardSize) {
+        if (name.equals("solvable"))
+            return new SolvableHandGenerator(boardSize, HOLDER_PIECE_COUNT,
+                    TimeScorer.GDX_CLOCK, DEAL_BUDGET_NANOS);
+
+        if (name.equals("easy") || name.equals("hard")) {
+            final DifficultyHandGenerator result = new DifficultyHandGenerator(boardSize,
+                    HOLDER_PIECE_COUNT, DEAL_CANDIDATES, TimeScorer.GDX_CLOCK, DEAL_BUDGET_NANOS);
+            result.setDifficulty(name.equals("easy") ? 0f : 1f);
+            return result;
+        }
+
+        return new RandomHandGenerator(TimeScorer.GDX_CLOCK);
+    }
+
     // If no piece can be put, then it is considered to be game over
     private boolean isGameOver() {
-        for (Piece piece : holder.getAvailablePieces())
-            if (board.canPutPiece(piece))
-                return false;
+        return !feasibility.anyFits();
+    }
 
-        return true;
+    // Some piece still fits, but if there's no order to put them all the game
+    // is as good as over, so the player is told once until there's a way out
+    private void warnIfNoWayOut() {
+        final int result = handSolver.solve(
+                board.getState(), holder.getHand(), HAND_SOLVER_BUDGET_NANOS);
+
+        if (result == HandSolver.DOOMED) {
+            if (!warnedNoWayOut) {
+                final float half = board.cellCount * board.cellSize * 0.5f;
+                bonusParticleHandler.addMessage(
+                        new Vector2(board.pos.x + half, board.pos.y + half), "no way out");
+                warnedNoWayOut = true;
+            }
+        } else if (result == HandSolver.FEASIBLE) {
+            warnedNoWayOut = false;
+        }
+    }
+
+    // The board or the hand changed, so any hint being shown is no longer valid
+    private void requestHint() {
+        hintRequested = Klooni.hintsEnabled();
+        if (hintRequested)
+            hints.request(board.getState(), holder.getHand());
+    }
+
+    // Remembers the game as it is after a move, so it can be gone back to
+    private void recordMove() {
+        if (gameMode != GAME_MODE_SCORE)
+            return;
+
+        final GameSnapshot previous = history.getCurrent();
+        history.record(new GameSnapshot(
+                board.snapshot(previous == null ? null : previous.board),
+                holder.getHand(), scorer.getCurrentScore(), holder.getRandomState()));
+    }
+
+    private void undo() {
+        if (!gameOverDone)
+            restoreMove(history.undo());
+    }
+
+    private void redo() {
+        if (!gameOverDone)
+            restoreMove(history.redo());
+    }
+
+    private void restoreMove(final GameSnapshot snapshot) {
+        if (snapshot == null)
+            return;
+
+        board.restore(snapshot.board);
+        holder.restore(snapshot);
+        scorer.setCurrentScore(snapshot.score);
+
+        feasibility.invalidate();
+        warnedNoWayOut = false;
+        requestHint();
     }
 
     private void doGameOver(final String gameOverReason) {
@@ -211,6 +362,12 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         save();
     }
 
+    // The GL context may have been lost while paused, and the board with it
+    @Override
+    public void resume() {
+        Board.invalidateLayers();
+    }
+
     @Override
     public void render(float delta) {
         Klooni.theme.glClearBackground();
@@ -226,6 +383,7 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
 
         scorer.draw(batch);
         board.draw(batch);
+        drawHint();
         holder.update();
         holder.draw(batch);
         bonusParticleHandler.run(batch);
@@ -238,9 +396,28 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         }
     }
 
+    // Without a runner the hints are searched here, a slice at a time
+    private void drawHint() {
+        if (!Klooni.hintsEnabled() || !holder.enabled)
+            return;
+
+        // They might have just been turned on from the customize menu
+        if (!hintRequested)
+            requestHint();
+
+        if (game.hintRunner == null && !pauseMenu.isShown())
+            hints.work(HINT_SLICE_NANOS);
+
+        final Hint hint = hints.poll();
+        if (hint != null)
+            board.drawHint(batch, hint.shape, hint.x, hint.y);
+    }
+
     @Override
     public void dispose() {
         pauseMenu.dispose();
+        hints.dispose();
+        board.dispose();
     }
 
     //endregion
@@ -251,6 +428,10 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     public boolean keyUp(int keycode) {
         if (keycode == Input.Keys.P || keycode == Input.Keys.BACK) // Pause
             showPauseMenu();
+        else if (keycode == Input.Keys.Z)
+            undo();
+        else if (keycode == Input.Keys.Y)
+            redo();
 
         return false;
     }
@@ -279,6 +460,10 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
             // After the piece was put, check if it's game over
             if (isGameOver()) {
                 doGameOver("no moves left");
+            } else {
+                recordMove();
+                warnIfNoWayOut();
+                requestHint();
             }
         }
         return true;
@@ -292,10 +477,6 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
     public void resize(int width, int height) {
     }
 
-    @Override
-    public void resume() {
-    }
-
     @Override
     public void hide() { /* Hide can only be called if the menu was shown. Place logic there. */ }
 
@@ -362,6 +543,27 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         return Gdx.files.local(SAVE_DAT_FILENAME).exists();
     }
 
+    // The board size of the saved game, or the current setting if it can't be read
+    private static int getSavedBoardSize() {
+        final FileHandle handle = Gdx.files.local(SAVE_DAT_FILENAME);
+        if (handle.exists()) {
+            try {
+                // Only the game mode goes before the board, see write()
+                final DataInputStream in = BinSerializer.open(handle.read());
+                try {
+                    in.readInt();
+                    final int size = Board.readSize(in);
+                    if (size <= Klooni.BOARD_SIZES[Klooni.BOARD_SIZES.length - 1])
+                        return size;
+                } finally {
+                    in.close();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        return Klooni.getBoardSize();
+    }
+
     private boolean tryLoad() {
         final FileHandle handle = Gdx.files.local(SAVE_DAT_FILENAME);
         if (handle.exists()) {
@@ -398,6 +600,7 @@ class GameScreen implements Screen, InputProcessor, BinSerializable {
         board.read(in);
         holder.read(in);
         scorer.read(in);
+        feasibility.invalidate();
     }
 
     //endregion
@@ -54,6 +54,7 @@ class PauseMenuStage extends Stage {
     private final BaseScorer scorer;
     private final SoftButton playButton;
     private final SoftButton customButton; // Customize & "Shut down"
+    private final SoftButton undoButton; // Only if the game mode can go back
 
     //endregion
 
@@ -61,6 +62,12 @@ class PauseMenuStage extends Stage {
 
     // We need the score to save the maximum score if a new record was beaten
     PauseMenuStage(final GameLayout layout, final Klooni game, final BaseScorer scorer, final int gameMode) {
+        this(layout, game, scorer, gameMode, null);
+    }
+
+    // The undo action, if any, is shown as an extra button to go back one move
+    PauseMenuStage(final GameLayout layout, final Klooni game, final BaseScorer scorer,
+                   final int gameMode, final Runnable undo) {
         this.game = game;
         this.scorer = scorer;
 
@@ -108,6 +115,22 @@ class PauseMenuStage extends Stage {
         playButton = new SoftButton(2, "play_texture");
         table.add(playButton).space(16);
         playButton.addListener(playChangeListener);
+
+        // Undo button, which goes back to the game to see the move undone
+        if (undo == null) {
+            undoButton = null;
+        } else {
+            table.row();
+            undoButton = new SoftButton(1, "back_texture");
+            table.add(undoButton).colspan(2).space(16);
+            undoButton.addListener(new ChangeListener() {
+                @Override
+                public void changed(ChangeEvent event, Actor actor) {
+                    undo.run();
+                    hide();
+                }
+            });
+        }
     }
 
     //endregion
@@ -189,6 +212,10 @@ class PauseMenuStage extends Stage {
             });
         }
 
+        // There's no going back once the game is over
+        if (undoButton != null)
+            undoButton.setVisible(false);
+
         band.setMessage(gameOverReason);
         show();
     }
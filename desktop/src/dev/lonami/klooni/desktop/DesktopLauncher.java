@@ -22,6 +22,7 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 
 import dev.lonami.klooni.Klooni;
+import dev.lonami.klooni.engine.ThreadedHintRunner;
 
 class DesktopLauncher {
     public static void main(String[] arg) {
@@ -32,6 +33,12 @@ class DesktopLauncher {
         config.addIcon("ic_launcher/icon128.png", Files.FileType.Internal);
         config.addIcon("ic_launcher/icon32.png", Files.FileType.Internal);
         config.addIcon("ic_launcher/icon16.png", Files.FileType.Internal);
-        new LwjglApplication(new Klooni(null), config);
+        for (String a : arg) {
+            if (a.equals("--profile"))
+                Klooni.profileFrames = true;
+            else if (a.equals("--no-atlas"))
+                Klooni.useAtlas = false;
+        }
+        new LwjglApplication(new Klooni(null, new ThreadedHintRunner()), config);
     }
 }
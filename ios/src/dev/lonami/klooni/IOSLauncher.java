@@ -23,11 +23,13 @@ import com.badlogic.gdx.backends.iosrobovm.IOSApplicationConfiguration;
 import org.robovm.apple.foundation.NSAutoreleasePool;
 import org.robovm.apple.uikit.UIApplication;
 
+import dev.lonami.klooni.engine.ThreadedHintRunner;
+
 class IOSLauncher extends IOSApplication.Delegate {
     @Override
     protected IOSApplication createApplication() {
         IOSApplicationConfiguration config = new IOSApplicationConfiguration();
-        return new IOSApplication(new Klooni(null), config);
+        return new IOSApplication(new Klooni(null, new ThreadedHintRunner()), config);
     }
 
     public static void main(String[] argv) {
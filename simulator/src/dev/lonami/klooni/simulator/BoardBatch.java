@@ -0,0 +1,279 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Arrays;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Shape;
+
+// Many independent boards of the same size, kept as a structure of arrays
+// to evaluate them all at once when analysing millions of positions.
+//
+// Occupancy is packed like on BitBoard (bit y * size + x), but the words are
+// interleaved: word w of board k lives at w * capacity + k, so the same word
+// of consecutive boards is contiguous. Every query walks the placements or
+// lines once, and for each of their words runs a tight branch-free loop over
+// all the boards, which the JIT can turn into SIMD instructions on its own.
+//
+// Lines are reported as bitmasks, so boards can be at most 64x64.
+public class BoardBatch {
+
+    //region Members
+
+    public final int size;
+    public final int capacity;
+
+    private final int wordCount;
+    private final long[] words;
+
+    // Per board accumulators for the query being run
+    private final long[] scratch;
+    private final int[] counts;
+    private final long[] fullRows;
+    private final long[] fullCols;
+
+    // Placements per shape index, as the (word, mask) pairs they cover.
+    // Placement p covers entries [first[s][p], first[s][p + 1])
+    private final int[][] placementFirst;
+    private final int[][] entryWord;
+    private final long[][] entryMask;
+
+    // Rows and then columns, as the (word, mask) pairs they cover
+    private final int[] lineFirst;
+    private final int[] lineWord;
+    private final long[] lineMask;
+
+    //endregion
+
+    //region Static members
+
+    public static final int MAX_SIZE = 64;
+
+    //endregion
+
+    //region Constructor
+
+    public BoardBatch(int size, int capacity) {
+        if (size < 1 || size > MAX_SIZE)
+            throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE);
+
+        this.size = size;
+        this.capacity = capacity;
+        wordCount = (size * size + 63) >>> 6;
+        words = new long[wordCount * capacity];
+        scratch = new long[capacity];
+        counts = new int[capacity];
+        fullRows = new long[capacity];
+        fullCols = new long[capacity];
+
+        // Each shape is made into a whole board mask on every anchor, keeping the non-zero words
+        final long[] mask = new long[wordCount];
+        placementFirst = new int[Shape.SHAPE_COUNT][];
+        entryWord = new int[Shape.SHAPE_COUNT][];
+        entryMask = new long[Shape.SHAPE_COUNT][];
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            final Shape shape = Shape.get(s);
+            final int anchorCols = Math.max(0, size - shape.cellCols + 1);
+            final int anchorRows = Math.max(0, size - shape.cellRows + 1);
+
+            placementFirst[s] = new int[anchorCols * anchorRows + 1];
+            entryWord[s] = new int[anchorCols * anchorRows * shape.cellRows * 2];
+            entryMask[s] = new long[entryWord[s].length];
+
+            int entry = 0;
+            for (int y = 0; y < anchorRows; ++y) {
+                for (int x = 0; x < anchorCols; ++x) {
+                    Arrays.fill(mask, 0L);
+                    for (int i = 0; i < shape.cellRows; ++i)
+                        for (int j = 0; j < shape.cellCols; ++j)
+                            if (shape.filled(i, j))
+                                setBit(mask, (y + i) * size + x + j);
+
+                    entry = addEntries(mask, entryWord[s], entryMask[s], entry);
+                    placementFirst[s][y * anchorCols + x + 1] = entry;
+                }
+            }
+        }
+
+        lineFirst = new int[2 * size + 1];
+        lineWord = new int[2 * size * wordCount];
+        lineMask = new long[lineWord.length];
+        int entry = 0;
+        for (int line = 0; line < 2 * size; ++line) {
+            Arrays.fill(mask, 0L);
+            for (int k = 0; k < size; ++k)
+                setBit(mask, line < size ? line * size + k : k * size + line - size);
+
+            entry = addEntries(mask, lineWord, lineMask, entry);
+            lineFirst[line + 1] = entry;
+        }
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private static void setBit(long[] mask, int index) {
+        mask[index >>> 6] |= 1L << index;
+    }
+
+    // Appends the non-zero words of the mask as (word, mask) entries
+    private static int addEntries(long[] mask, int[] entryWord, long[] entryMask, int entry) {
+        for (int w = 0; w < mask.length; ++w) {
+            if (mask[w] != 0) {
+                entryWord[entry] = w;
+                entryMask[entry] = mask[w];
+                entry++;
+            }
+        }
+        return entry;
+    }
+
+    // Leaves on scratch, for every board, the filled bits under the given entries
+    private void collect(int[] entryWord, long[] entryMask, int from, int to) {
+        Arrays.fill(scratch, 0L);
+        for (int e = from; e < to; ++e) {
+            final int base = entryWord[e] * capacity;
+            final long mask = entryMask[e];
+            for (int k = 0; k < capacity; ++k)
+                scratch[k] |= words[base + k] & mask;
+        }
+    }
+
+    // Leaves on scratch, for every board, the empty bits under the given entries
+    private void collectEmpty(int[] entryWord, long[] entryMask, int from, int to) {
+        Arrays.fill(scratch, 0L);
+        for (int e = from; e < to; ++e) {
+            final int base = entryWord[e] * capacity;
+            final long mask = entryMask[e];
+            for (int k = 0; k < capacity; ++k)
+                scratch[k] |= ~words[base + k] & mask;
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public boolean isEmpty(int board, int x, int y) {
+        final int index = y * size + x;
+        return (words[(index >>> 6) * capacity + board] & (1L << index)) == 0;
+    }
+
+    public void set(int board, int x, int y, boolean filled) {
+        final int index = y * size + x;
+        final int i = (index >>> 6) * capacity + board;
+        if (filled)
+            words[i] |= 1L << index;
+        else
+            words[i] &= ~(1L << index);
+    }
+
+    // Copies the occupancy of the given board into the batch
+    public void load(int board, BitBoard from) {
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                set(board, x, y, !from.isEmpty(x, y));
+    }
+
+    // Puts the shape without checking whether it fits, which is up to the caller
+    public void put(int board, Shape shape, int x, int y) {
+        for (int i = 0; i < shape.cellRows; ++i)
+            for (int j = 0; j < shape.cellCols; ++j)
+                if (shape.filled(i, j))
+                    set(board, x + j, y + i, true);
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void clear(int board) {
+        for (int w = 0; w < wordCount; ++w)
+            words[w * capacity + board] = 0;
+    }
+
+    // Stores on counts, for every board, on how many anchors the shape fits
+    public void countPlacements(Shape shape, int[] counts) {
+        Arrays.fill(counts, 0, capacity, 0);
+        final int[] first = placementFirst[shape.shapeIndex];
+        final int[] entryWord = this.entryWord[shape.shapeIndex];
+        final long[] entryMask = this.entryMask[shape.shapeIndex];
+        for (int p = 0; p + 1 < first.length; ++p) {
+            collect(entryWord, entryMask, first[p], first[p + 1]);
+
+            // The shape fits if none of its bits were filled
+            for (int k = 0; k < capacity; ++k)
+                counts[k] += (int) (((scratch[k] | -scratch[k]) >>> 63) ^ 1);
+        }
+    }
+
+    // Stores on fits, for every board, whether the shape fits anywhere on it
+    public void fitsAnywhere(Shape shape, boolean[] fits) {
+        countPlacements(shape, counts);
+        for (int k = 0; k < capacity; ++k)
+            fits[k] = counts[k] != 0;
+    }
+
+    // Finds the complete rows and columns of every board, which can then be
+    // queried with getFullRows and getFullColumns, and returns how many there are
+    public long findFullLines() {
+        Arrays.fill(fullRows, 0L);
+        Arrays.fill(fullCols, 0L);
+        for (int line = 0; line < 2 * size; ++line) {
+            collectEmpty(lineWord, lineMask, lineFirst[line], lineFirst[line + 1]);
+
+            final long[] full = line < size ? fullRows : fullCols;
+            final int bit = line < size ? line : line - size;
+            for (int k = 0; k < capacity; ++k)
+                full[k] |= (((scratch[k] | -scratch[k]) >>> 63) ^ 1) << bit;
+        }
+
+        long total = 0;
+        for (int k = 0; k < capacity; ++k)
+            total += Long.bitCount(fullRows[k]) + Long.bitCount(fullCols[k]);
+
+        return total;
+    }
+
+    // Bit y is set if row y of the board was full on the last findFullLines
+    public long getFullRows(int board) {
+        return fullRows[board];
+    }
+
+    public long getFullColumns(int board) {
+        return fullCols[board];
+    }
+
+    // Empties the lines found by the last findFullLines on every board
+    public void clearFullLines() {
+        for (int line = 0; line < 2 * size; ++line) {
+            final long[] full = line < size ? fullRows : fullCols;
+            final int bit = line < size ? line : line - size;
+            for (int e = lineFirst[line]; e < lineFirst[line + 1]; ++e) {
+                final int base = lineWord[e] * capacity;
+                final long mask = lineMask[e];
+                for (int k = 0; k < capacity; ++k)
+                    words[base + k] &= ~(mask & -((full[k] >>> bit) & 1));
+            }
+        }
+    }
+
+    //endregion
+}
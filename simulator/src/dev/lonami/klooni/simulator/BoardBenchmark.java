@@ -0,0 +1,195 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Arrays;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Scoring;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
+
+// Measures how the latency of dropping a piece scales with the board size.
+//
+// A drop is what the game screen does when a piece is released: checking that
+// it fits, putting it, clearing the complete lines, refilling the hand and
+// telling whether it's game over. Moves are picked at random among the legal
+// ones, which is not timed, and games restart as soon as they're over.
+//
+// Then, on the sizes a BoardBatch can hold, it measures counting where every
+// shape fits on many random boards at once, against doing so board by board.
+//
+// Usage: benchmark [drops per size] [seed] [sizes...]
+public class BoardBenchmark {
+
+    //region Static members
+
+    private static final int HAND_COUNT = 3;
+    private static final int[] DEFAULT_SIZES = {5, 8, 10, 16, 20, 32, 33, 48, 64, 96, 128};
+
+    // Drops made before measuring, so that the JIT has already kicked in
+    private static final int WARMUP_DROPS = 20000;
+
+    // Boards counted at once, how full they are, and the rounds over every shape
+    // on 10x10 boards, with fewer on bigger boards so every size takes as long
+    private static final int BATCH_BOARDS = 4096;
+    private static final float BATCH_FILL = 0.45f;
+    private static final int BATCH_ROUNDS = 20;
+
+    //endregion
+
+    //region Static methods
+
+    // Returns the average nanoseconds per drop, and fills in the percentiles
+    static double measure(int size, int drops, long seed, long[] percentiles) {
+        final SeededRandom random = new SeededRandom(seed);
+        final SeededRandom moveRandom = random.split();
+        final int[] anchors = new int[size * size];
+        final long[] times = new long[drops];
+
+        GameState game = new GameState(size, HAND_COUNT, new Scoring(), random.split());
+        for (int drop = -WARMUP_DROPS; drop < drops; ) {
+            // Pick a random legal move among the shapes left
+            int slot = -1, anchor = -1;
+            for (int s = 0; s < game.hand.getCount() && slot < 0; ++s) {
+                final Shape shape = game.hand.get(s);
+                if (shape == null)
+                    continue;
+
+                final int count = game.board.legalPlacements(shape, anchors);
+                if (count != 0) {
+                    slot = s;
+                    anchor = anchors[moveRandom.nextInt(count)];
+                }
+            }
+
+            final long start = System.nanoTime();
+            game.put(slot, anchor % size, anchor / size);
+            final boolean over = game.isGameOver();
+            final long elapsed = System.nanoTime() - start;
+
+            if (drop >= 0)
+                times[drop] = elapsed;
+
+            ++drop;
+            if (over)
+                game = new GameState(size, HAND_COUNT, new Scoring(), random.split());
+        }
+
+        long total = 0;
+        for (int i = 0; i < drops; ++i)
+            total += times[i];
+
+        Arrays.sort(times);
+        percentiles[0] = times[drops / 2];
+        percentiles[1] = times[drops * 9 / 10];
+        percentiles[2] = times[drops * 99 / 100];
+        return (double) total / drops;
+    }
+
+    // Returns the nanoseconds per board and shape to count where it fits, on
+    // result[0] for the whole batch at once and on result[1] board by board
+    static double[] measureBatch(int size, long seed) {
+        final SeededRandom random = new SeededRandom(seed);
+        final BoardBatch batch = new BoardBatch(size, BATCH_BOARDS);
+        final BitBoard[] boards = new BitBoard[BATCH_BOARDS];
+        for (int k = 0; k < BATCH_BOARDS; ++k) {
+            boards[k] = new BitBoard(size);
+            for (int y = 0; y < size; ++y)
+                for (int x = 0; x < size; ++x)
+                    if (random.nextFloat() < BATCH_FILL)
+                        boards[k].set(x, y, 0);
+
+            batch.load(k, boards[k]);
+        }
+
+        final int rounds = Math.max(2, BATCH_ROUNDS * 100 / (size * size));
+        final int[] counts = new int[BATCH_BOARDS];
+        final int[] anchors = new int[size * size];
+        long batchNanos = 0, singleNanos = 0, checksum = 0;
+        for (int round = -Math.max(1, rounds / 4); round < rounds; ++round) {
+            long start = System.nanoTime();
+            for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+                batch.countPlacements(Shape.get(s), counts);
+                checksum += counts[round & (BATCH_BOARDS - 1)];
+            }
+            final long batchElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int s = 0; s < Shape.SHAPE_COUNT; ++s)
+                for (int k = 0; k < BATCH_BOARDS; ++k)
+                    checksum -= boards[k].legalPlacements(Shape.get(s), anchors);
+            final long singleElapsed = System.nanoTime() - start;
+
+            if (round >= 0) {
+                batchNanos += batchElapsed;
+                singleNanos += singleElapsed;
+            }
+        }
+
+        // Uses the counts, so the JIT can't drop them as dead code
+        if (checksum == Long.MIN_VALUE)
+            System.out.println();
+
+        final double perBoard = (double) rounds * Shape.SHAPE_COUNT * BATCH_BOARDS;
+        return new double[]{batchNanos / perBoard, singleNanos / perBoard};
+    }
+
+    public static void main(String[] args) {
+        final int drops = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 2) {
+            sizes = new int[args.length - 2];
+            for (int i = 0; i < sizes.length; ++i)
+                sizes[i] = Integer.parseInt(args[i + 2]);
+        }
+
+        System.out.println("Dropping " + drops + " pieces per board size (seed " + seed + ")");
+        System.out.println("   size       avg ns     p50 ns     p90 ns     p99 ns");
+
+        final long[] percentiles = new long[3];
+        for (int size : sizes) {
+            final double average = measure(size, drops, seed, percentiles);
+            System.out.println(pad(size + "x" + size, 7) + pad((long) average, 13)
+                    + pad(percentiles[0], 11) + pad(percentiles[1], 11) + pad(percentiles[2], 11));
+        }
+
+        System.out.println();
+        System.out.println("Counting every shape's placements on " + BATCH_BOARDS + " boards");
+        System.out.println("   size  batch ns/board  one by one ns/board");
+        for (int size : sizes) {
+            if (size > BoardBatch.MAX_SIZE)
+                continue;
+
+            final double[] nanos = measureBatch(size, seed);
+            System.out.println(pad(size + "x" + size, 7) + pad((long) nanos[0], 16) + pad((long) nanos[1], 21));
+        }
+    }
+
+    private static String pad(Object value, int width) {
+        final StringBuilder result = new StringBuilder(value.toString());
+        while (result.length() < width)
+            result.insert(0, ' ');
+
+        return result.toString();
+    }
+
+    //endregion
+}
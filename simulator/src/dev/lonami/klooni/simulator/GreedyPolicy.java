@@ -0,0 +1,75 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Shape;
+
+// Picks the move that clears the most lines right away, preferring the bigger
+// shapes (which are the hardest to fit later) and breaking ties at random.
+public class GreedyPolicy implements MovePolicy {
+
+    //region Members
+
+    private final int[] anchors;
+
+    //endregion
+
+    //region Constructor
+
+    public GreedyPolicy(int boardSize) {
+        anchors = new int[boardSize * boardSize];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public boolean move(GameState game, Random random) {
+        final int size = game.board.size;
+        int bestSlot = -1, bestAnchor = -1, bestValue = -1, ties = 0;
+
+        for (int slot = 0; slot < game.hand.getCount(); ++slot) {
+            final Shape shape = game.hand.get(slot);
+            if (shape == null)
+                continue;
+
+            final int area = shape.area;
+            final int found = game.board.legalPlacements(shape, anchors);
+            for (int i = 0; i < found; ++i) {
+                final int x = anchors[i] % size, y = anchors[i] / size;
+                final int value = game.board.countCompletedBy(shape, x, y) * 100 + area;
+                if (value > bestValue) {
+                    bestValue = value;
+                    ties = 1;
+                } else if (value < bestValue || random.nextInt(++ties) != 0) {
+                    continue;
+                }
+                bestSlot = slot;
+                bestAnchor = anchors[i];
+            }
+        }
+
+        return bestSlot >= 0 && game.put(bestSlot, bestAnchor % size, bestAnchor / size);
+    }
+
+    //endregion
+}
@@ -0,0 +1,29 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.GameState;
+
+// Decides which move to make on a game. Instances may keep scratch buffers,
+// so every worker thread must use its own (see Simulator.createPolicy).
+public interface MovePolicy {
+    // Makes a single move on the given game, returning false if there was none
+    boolean move(GameState game, Random random);
+}
@@ -0,0 +1,131 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.BoardSnapshot;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.Symmetry;
+
+// Counts the distinct boards reachable from the empty one by putting any
+// amount of shapes, and how many of them are left once the rotations and
+// mirror images of a board are considered the same one.
+//
+// Every level is found by putting every shape at every anchor of the boards
+// on the previous one, clearing lines on the way. When boards are told apart
+// by their canonical key, only one board per symmetry class is kept, so the
+// next level has close to 8 times fewer boards to expand, and the seen set
+// hits every time a transform of a known board comes up.
+//
+// Usage: openings [size] [depth]
+public class OpeningAnalysis {
+
+    //region Static members
+
+    private static final long[] NO_HAND = new long[Symmetry.COUNT];
+
+    //endregion
+
+    //region Static methods
+
+    // Explores up to the given depth, filling in the boards found per level, the
+    // children that were already seen, and the milliseconds every level took
+    static void explore(int size, int depth, boolean canonical,
+                        long[] counts, long[] hits, long[] millis) {
+        final Symmetry symmetry = new Symmetry(size);
+        final BitBoard board = new BitBoard(size);
+        final BitBoard child = new BitBoard(size);
+        final int[] anchors = new int[size * size];
+
+        List<BoardSnapshot> level = new ArrayList<BoardSnapshot>();
+        level.add(BoardSnapshot.take(board));
+        for (int d = 0; d < depth; ++d) {
+            final long start = System.nanoTime();
+            final Set<Long> seen = new HashSet<Long>();
+            final List<BoardSnapshot> next = new ArrayList<BoardSnapshot>();
+            for (BoardSnapshot position : level) {
+                position.restore(board);
+                for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+                    final Shape shape = Shape.get(s);
+                    final int count = board.legalPlacements(shape, anchors);
+                    for (int i = 0; i < count; ++i) {
+                        child.copyFrom(board);
+                        child.put(shape, anchors[i] % size, anchors[i] / size);
+                        child.findComplete();
+                        child.clearComplete();
+
+                        final long key = canonical
+                                ? symmetry.canonicalKey(child, NO_HAND)
+                                : child.getHash();
+
+                        if (seen.add(key))
+                            next.add(BoardSnapshot.take(child, position));
+                        else
+                            hits[d]++;
+                    }
+                }
+            }
+            level = next;
+            counts[d] = next.size();
+            millis[d] = (System.nanoTime() - start) / 1000000L;
+        }
+    }
+
+    public static void main(String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        final long[] counts = new long[depth], hits = new long[depth], millis = new long[depth];
+        final long[] canonicalCounts = new long[depth], canonicalHits = new long[depth],
+                canonicalMillis = new long[depth];
+
+        explore(size, depth, false, counts, hits, millis);
+        explore(size, depth, true, canonicalCounts, canonicalHits, canonicalMillis);
+
+        System.out.println("Boards reachable on " + size + "x" + size + " after putting shapes");
+        System.out.println(" shapes     boards   canonical    ratio     hit %   canonical hit %      ms   canonical ms");
+        for (int d = 0; d < depth; ++d) {
+            final long children = counts[d] + hits[d];
+            final long canonicalChildren = canonicalCounts[d] + canonicalHits[d];
+            System.out.println(pad(d + 1, 7) + pad(counts[d], 11) + pad(canonicalCounts[d], 12)
+                    + pad(round(canonicalCounts[d] == 0 ? 0 : (double) counts[d] / canonicalCounts[d]), 9)
+                    + pad(round(children == 0 ? 0 : 100.0 * hits[d] / children), 10)
+                    + pad(round(canonicalChildren == 0 ? 0 : 100.0 * canonicalHits[d] / canonicalChildren), 18)
+                    + pad(millis[d], 8) + pad(canonicalMillis[d], 15));
+        }
+    }
+
+    private static String round(double value) {
+        return Double.toString(Math.round(value * 100) / 100.0);
+    }
+
+    private static String pad(Object value, int width) {
+        final StringBuilder result = new StringBuilder(value.toString());
+        while (result.length() < width)
+            result.insert(0, ' ');
+
+        return result.toString();
+    }
+
+    //endregion
+}
@@ -0,0 +1,232 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Clock;
+import dev.lonami.klooni.engine.Hand;
+import dev.lonami.klooni.engine.RolloutEvaluator;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
+
+// Plays out the same position on every core at once.
+//
+// Every worker owns an evaluator with its own random, split from the given
+// one, so playouts share nothing and allocate nothing. Workers play in short
+// slices, after which they add what they got to the merged results, so the
+// estimate can be read from any thread while the evaluation is running.
+//
+// Usage: rollouts [milliseconds] [seed] [threads] [random|greedy]
+public class ParallelRolloutEvaluator {
+
+    //region Members
+
+    private final ForkJoinPool pool;
+    private final RolloutEvaluator[] workers;
+
+    // Sum of the slices every worker finished, guarded by itself so
+    // it can be read while start waits for the previous workers
+    private final RolloutEvaluator merged;
+
+    // Playouts the workers may still claim
+    private final AtomicInteger unclaimed = new AtomicInteger();
+    private volatile boolean stopped;
+    private final List<Future<Void>> running = new ArrayList<Future<Void>>();
+
+    //endregion
+
+    //region Static members
+
+    private static final int BOARD_SIZE = 10;
+    private static final int HAND_COUNT = 3;
+
+    // Time and playouts a worker takes before reporting back
+    private static final long SLICE_NANOS = 5000000L;
+    private static final int SLICE_ROLLOUTS = 64;
+
+    //endregion
+
+    //region Constructor
+
+    public ParallelRolloutEvaluator(int size, int handCount, int policy, int horizon,
+                                    final SeededRandom random, final ForkJoinPool pool) {
+        this.pool = pool;
+        workers = new RolloutEvaluator[pool.getParallelism()];
+        for (int i = 0; i < workers.length; ++i)
+            workers[i] = new RolloutEvaluator(size, handCount, policy, horizon, Clock.SYSTEM, random.split());
+
+        merged = new RolloutEvaluator(size, handCount, policy, horizon, Clock.SYSTEM, random.split());
+    }
+
+    //endregion
+
+    //region Static methods
+
+    public static void main(String[] args) throws InterruptedException {
+        final long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        final int threads = args.length > 2
+                ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        final int policy = args.length > 3 && args[3].equals("random")
+                ? RolloutEvaluator.POLICY_RANDOM : RolloutEvaluator.POLICY_GREEDY;
+
+        // Some random position halfway through a game
+        final SeededRandom random = new SeededRandom(seed);
+        final BitBoard board = new BitBoard(BOARD_SIZE);
+        for (int y = 0; y < BOARD_SIZE; ++y)
+            for (int x = 0; x < BOARD_SIZE; ++x)
+                if (random.nextInt(3) == 0)
+                    board.set(x, y, 0);
+
+        final Hand hand = new Hand(HAND_COUNT);
+        for (int i = 0; i < HAND_COUNT; ++i)
+            hand.set(i, Shape.random(random));
+
+        System.out.println("Playing out a position for " + millis + "ms (seed "
+                + seed + ") on " + threads + " threads");
+
+        final ParallelRolloutEvaluator evaluator = new ParallelRolloutEvaluator(BOARD_SIZE, HAND_COUNT,
+                policy, RolloutEvaluator.DEFAULT_HORIZON, random, new ForkJoinPool(threads));
+
+        final long start = System.nanoTime();
+        evaluator.start(board, hand, millis * 1000000L, Integer.MAX_VALUE);
+
+        // The estimate is there to be read at any time, and it only gets better
+        for (long report = Math.max(1, millis / 8); ; report *= 2) {
+            Thread.sleep(report);
+            if (evaluator.isDone())
+                break;
+
+            evaluator.print(System.nanoTime() - start);
+        }
+        evaluator.await();
+        evaluator.print(System.nanoTime() - start);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    private void print(long elapsedNanos) {
+        synchronized (merged) {
+            System.out.println((elapsedNanos / 1000000L) + "ms: " + merged.getRollouts()
+                    + " rollouts, " + merged.getEstimate() + " +- " + merged.getStandardError()
+                    + " points, " + merged.getAverageMoves() + " moves each");
+        }
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Starts playing out the given position until the time budget runs out or the given
+    // amount of playouts is made, forgetting about the previous position. Doesn't block
+    public synchronized void start(BitBoard board, Hand hand, long budgetNanos, int maxRollouts) {
+        stop();
+        await();
+
+        synchronized (merged) {
+            merged.reset(board, hand);
+        }
+        unclaimed.set(maxRollouts);
+        stopped = false;
+
+        final long deadline = System.nanoTime() + budgetNanos;
+        for (final RolloutEvaluator worker : workers) {
+            worker.reset(board, hand);
+            final Future<Void> future = pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    while (!stopped) {
+                        final int claimed = Math.min(SLICE_ROLLOUTS, unclaimed.getAndAdd(-SLICE_ROLLOUTS));
+                        final long left = deadline - System.nanoTime();
+                        if (claimed <= 0 || left <= 0)
+                            break;
+
+                        worker.run(Math.min(left, SLICE_NANOS), claimed);
+                        synchronized (merged) {
+                            merged.merge(worker);
+                        }
+                        worker.resetStatistics();
+                    }
+                    return null;
+                }
+            });
+            synchronized (running) {
+                running.add(future);
+            }
+        }
+    }
+
+    // Asks the workers to stop after their current slice
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isDone() {
+        synchronized (running) {
+            for (Future<Void> future : running)
+                if (!future.isDone())
+                    return false;
+        }
+        return true;
+    }
+
+    // Blocks until every worker is done
+    public void await() {
+        synchronized (running) {
+            try {
+                for (Future<Void> future : running)
+                    future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            running.clear();
+        }
+    }
+
+    public long getRollouts() {
+        synchronized (merged) {
+            return merged.getRollouts();
+        }
+    }
+
+    public float getEstimate() {
+        synchronized (merged) {
+            return merged.getEstimate();
+        }
+    }
+
+    public float getStandardError() {
+        synchronized (merged) {
+            return merged.getStandardError();
+        }
+    }
+
+    //endregion
+}
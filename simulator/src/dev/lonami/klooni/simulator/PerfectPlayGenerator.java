@@ -0,0 +1,482 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.PerfectPlayTable;
+import dev.lonami.klooni.engine.Scoring;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
+import dev.lonami.klooni.engine.Symmetry;
+import dev.lonami.klooni.engine.Zobrist;
+
+// Walks every board reachable on a tiny board size and finds how likely it is
+// to survive a given amount of hands playing perfectly, writing the result as a
+// PerfectPlayTable.
+//
+// Boards are packed in a long and only kept once per symmetry class. Where
+// every placement of every shape leads is found once, and then the values are
+// worked out one hand at a time from the end. The value of a board, before the
+// hand is dealt, is 1 once there are no hands to go, and otherwise the average
+// over every hand that Hand.takeMore can deal of the best way to put its three
+// shapes, valued as the board they leave with one hand less to go (or 0 if the
+// shapes can't all be put, since that's game over).
+//
+// The best way to put a hand is found a shape at a time: first the best
+// placement of every single shape, then of every pair of shapes (placing one
+// and then the best of the other), and then of every hand. Every hand is a
+// multiset of shapes, since their order on the hand doesn't matter, so there
+// are far fewer than there are ways to deal them.
+//
+// Usage: perfect [size] [horizon] [file] [games]
+public class PerfectPlayGenerator {
+
+    //region Members
+
+    private final int size;
+    private final int horizon;
+    private final Symmetry symmetry;
+
+    private final Shape[] shapes;
+    private final int shapeCount;
+    private final int pairCount;
+
+    // Per shape, the cells of every placement on the empty board, and the cells of every line
+    private final long[][] placements;
+    private final long[] lines;
+
+    // The shape (or pair of shapes) every one goes to under every symmetry
+    private final int[][] shapeTransformed;
+    private final int[][] pairTransformed;
+
+    // The shapes of every pair
+    private final int[] pairFirst;
+    private final int[] pairSecond;
+
+    // Canonical packed cells of every board, in unsigned ascending order
+    private long[] cells = new long[1024];
+    private int boardCount;
+    private BoardIndex indices = new BoardIndex(1024);
+
+    // Per board and shape, the range of placements in the successor array,
+    // which holds the index of the board left times Symmetry.COUNT plus the
+    // transform that turned it into its canonical form
+    private int[] successorStart;
+    private int[] successors;
+
+    // Values per board, and of every shape and pair of shapes put on every board
+    private double[] values;
+    private float[] singles;
+    private float[] pairs;
+
+    //endregion
+
+    //region Constructor
+
+    public PerfectPlayGenerator(int size, int horizon) {
+        if (size < 1 || size > PerfectPlayTable.MAX_SIZE)
+            throw new IllegalArgumentException("Perfect play tables go up to " + PerfectPlayTable.MAX_SIZE + "x" + PerfectPlayTable.MAX_SIZE);
+
+        this.size = size;
+        this.horizon = horizon;
+        symmetry = new Symmetry(size);
+        shapes = PerfectPlayTable.playableShapes(size);
+        shapeCount = shapes.length;
+        pairCount = pairIndex(0, shapeCount);
+
+        placements = new long[shapeCount][];
+        lines = new long[size * 2];
+        shapeTransformed = new int[Symmetry.COUNT][shapeCount];
+        pairTransformed = new int[Symmetry.COUNT][pairCount];
+        pairFirst = new int[pairCount];
+        pairSecond = new int[pairCount];
+        buildMasks();
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Index of the pair of (local) shapes a and b, in any order
+    private static int pairIndex(int a, int b) {
+        return a <= b ? b * (b + 1) / 2 + a : a * (a + 1) / 2 + b;
+    }
+
+    private int localId(Shape shape) {
+        for (int i = 0; i < shapeCount; ++i)
+            if (shapes[i] == shape)
+                return i;
+
+        throw new IllegalStateException("The playable shapes are not closed under symmetry");
+    }
+
+    // Finds where every shape can go, what makes a line, and how symmetries move shapes around
+    private void buildMasks() {
+        final BitBoard board = new BitBoard(size);
+        final int[] anchors = new int[size * size];
+        for (int s = 0; s < shapeCount; ++s) {
+            board.clear();
+            final int count = board.legalPlacements(shapes[s], anchors);
+            placements[s] = new long[count];
+            for (int i = 0; i < count; ++i) {
+                board.clear();
+                board.put(shapes[s], anchors[i] % size, anchors[i] / size);
+                placements[s][i] = PerfectPlayTable.packCells(board);
+            }
+            for (int t = 0; t < Symmetry.COUNT; ++t)
+                shapeTransformed[t][s] = localId(Symmetry.transform(shapes[s], t));
+        }
+
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                lines[i] |= 1L << (i * size + j);
+                lines[size + i] |= 1L << (j * size + i);
+            }
+        }
+
+        for (int b = 0; b < shapeCount; ++b) {
+            for (int a = 0; a <= b; ++a) {
+                final int pair = pairIndex(a, b);
+                pairFirst[pair] = a;
+                pairSecond[pair] = b;
+                for (int t = 0; t < Symmetry.COUNT; ++t)
+                    pairTransformed[t][pair] = pairIndex(shapeTransformed[t][a], shapeTransformed[t][b]);
+            }
+        }
+    }
+
+    // The board left after putting a shape with the given cells, full lines cleared
+    private long put(long board, long shape) {
+        board |= shape;
+        long full = 0;
+        for (long line : lines)
+            if ((board & line) == line)
+                full |= line;
+
+        return board & ~full;
+    }
+
+    private void add(long packed) {
+        if (boardCount == cells.length) {
+            cells = Arrays.copyOf(cells, boardCount * 2);
+            indices = new BoardIndex(cells.length);
+            for (int i = 0; i < boardCount; ++i)
+                indices.put(cells[i], i);
+        }
+
+        cells[boardCount] = packed;
+        indices.put(packed, boardCount++);
+    }
+
+    // Finds every board reachable from the empty one, numbered in unsigned ascending order
+    private void explore() {
+        add(0L);
+        for (int index = 0; index < boardCount; ++index) {
+            final long board = cells[index];
+            for (int s = 0; s < shapeCount; ++s) {
+                for (long shape : placements[s]) {
+                    if ((board & shape) == 0) {
+                        final long child = symmetry.canonicalCells(put(board, shape));
+                        if (indices.get(child) < 0)
+                            add(child);
+                    }
+                }
+            }
+        }
+
+        // Flipping the sign bit sorts signed longs in unsigned order
+        cells = Arrays.copyOf(cells, boardCount);
+        for (int i = 0; i < boardCount; ++i)
+            cells[i] ^= Long.MIN_VALUE;
+        Arrays.sort(cells);
+        indices = new BoardIndex(boardCount);
+        for (int i = 0; i < boardCount; ++i) {
+            cells[i] ^= Long.MIN_VALUE;
+            indices.put(cells[i], i);
+        }
+    }
+
+    // Finds where every placement leads, once the boards are numbered
+    private void link() {
+        successorStart = new int[boardCount * shapeCount + 1];
+        int count = 0;
+        for (int board = 0; board < boardCount; ++board)
+            for (int s = 0; s < shapeCount; ++s)
+                for (long shape : placements[s])
+                    if ((cells[board] & shape) == 0)
+                        count++;
+
+        successors = new int[count];
+        count = 0;
+        for (int board = 0; board < boardCount; ++board) {
+            for (int s = 0; s < shapeCount; ++s) {
+                successorStart[board * shapeCount + s] = count;
+                for (long shape : placements[s]) {
+                    if ((cells[board] & shape) == 0) {
+                        final long child = symmetry.canonicalCells(put(cells[board], shape));
+                        successors[count++] = indices.get(child) * Symmetry.COUNT + symmetry.getTransform();
+                    }
+                }
+            }
+        }
+        successorStart[boardCount * shapeCount] = count;
+    }
+
+    // Works out the values with one more hand to go from the current ones
+    private void solveLevel(final double[] handProbabilities) {
+        // The best placement of a single shape, valued as the board it leaves
+        for (int board = 0; board < boardCount; ++board) {
+            for (int s = 0; s < shapeCount; ++s) {
+                final int base = board * shapeCount + s;
+                double best = 0;
+                for (int i = successorStart[base]; i < successorStart[base + 1]; ++i)
+                    best = Math.max(best, values[successors[i] / Symmetry.COUNT]);
+
+                singles[base] = (float) best;
+            }
+        }
+
+        // The best placement of either shape of a pair, followed by the other one,
+        // which is transformed like the board left, to look it up in its canonical form
+        for (int board = 0; board < boardCount; ++board) {
+            for (int pair = 0; pair < pairCount; ++pair) {
+                float best = 0;
+                for (int k = 0; k < 2; ++k) {
+                    final int first = k == 0 ? pairFirst[pair] : pairSecond[pair];
+                    final int other = k == 0 ? pairSecond[pair] : pairFirst[pair];
+                    if (k == 1 && first == other)
+                        break;
+
+                    final int base = board * shapeCount + first;
+                    for (int i = successorStart[base]; i < successorStart[base + 1]; ++i) {
+                        final int next = successors[i];
+                        best = Math.max(best, singles[next / Symmetry.COUNT * shapeCount
+                                + shapeTransformed[next % Symmetry.COUNT][other]]);
+                    }
+                }
+                pairs[board * pairCount + pair] = best;
+            }
+        }
+
+        // The best placement of any shape, followed by the best of the pair left,
+        // averaged over every hand
+        final float[] rest = new float[shapeCount * pairCount];
+        for (int board = 0; board < boardCount; ++board) {
+            Arrays.fill(rest, 0f);
+            for (int s = 0; s < shapeCount; ++s) {
+                final int base = board * shapeCount + s;
+                for (int i = successorStart[base]; i < successorStart[base + 1]; ++i) {
+                    final int next = successors[i];
+                    final int nextBase = next / Symmetry.COUNT * pairCount;
+                    final int[] transformed = pairTransformed[next % Symmetry.COUNT];
+                    for (int pair = 0; pair < pairCount; ++pair)
+                        rest[s * pairCount + pair] = Math.max(rest[s * pairCount + pair],
+                                pairs[nextBase + transformed[pair]]);
+                }
+            }
+
+            double value = 0;
+            int hand = 0;
+            for (int c = 0; c < shapeCount; ++c) {
+                for (int b = 0; b <= c; ++b) {
+                    for (int a = 0; a <= b; ++a, ++hand) {
+                        final float best = Math.max(rest[a * pairCount + pairIndex(b, c)],
+                                Math.max(rest[b * pairCount + pairIndex(a, c)], rest[c * pairCount + pairIndex(a, b)]));
+
+                        value += handProbabilities[hand] * best;
+                    }
+                }
+            }
+            values[board] = value;
+        }
+    }
+
+    // Probability that Hand.takeMore deals every hand of playable shapes, in the order solveLevel goes through them
+    private double[] handProbabilities() {
+        final double[] result = new double[shapeCount * (shapeCount + 1) * (shapeCount + 2) / 6];
+        int hand = 0;
+        for (int c = 0; c < shapeCount; ++c) {
+            for (int b = 0; b <= c; ++b) {
+                for (int a = 0; a <= b; ++a, ++hand) {
+                    // The three shapes are dealt independently, in any order
+                    final int orders = a == c ? 1 : a == b || b == c ? 3 : 6;
+                    result[hand] = orders
+                            * Shape.PROBABILITIES[shapes[a].shapeIndex]
+                            * Shape.PROBABILITIES[shapes[b].shapeIndex]
+                            * Shape.PROBABILITIES[shapes[c].shapeIndex];
+                }
+            }
+        }
+        return result;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    // Finds every board and works out its value, returning the milliseconds it took
+    public long generate() {
+        final long start = System.nanoTime();
+        explore();
+        link();
+
+        values = new double[boardCount];
+        singles = new float[boardCount * shapeCount];
+        pairs = new float[boardCount * pairCount];
+        Arrays.fill(values, 1.0);
+
+        final double[] handProbabilities = handProbabilities();
+        for (int level = 0; level < horizon; ++level)
+            solveLevel(handProbabilities);
+
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    // Probability of surviving the whole horizon from the empty board
+    public double getSurvival() {
+        return values[0];
+    }
+
+    // Probability of surviving the whole horizon from the given board before
+    // a hand is dealt, or -1 if it can't be reached
+    public double getValue(BitBoard board) {
+        final int index = indices.get(symmetry.canonicalCells(PerfectPlayTable.packCells(board)));
+        return index < 0 ? -1.0 : values[index];
+    }
+
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    public void write(String path) throws IOException {
+        final int keyBytes = PerfectPlayTable.keyBytes(size);
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(path)));
+        try {
+            // magic, version, size, horizon, shape count, board count, key bytes
+            out.writeInt(PerfectPlayTable.MAGIC);
+            out.writeInt(PerfectPlayTable.VERSION);
+            out.writeInt(size);
+            out.writeInt(horizon);
+            out.writeInt(shapeCount);
+            out.writeInt(boardCount);
+            out.writeInt(keyBytes);
+            for (int board = 0; board < boardCount; ++board) {
+                if (keyBytes == 4)
+                    out.writeInt((int) cells[board]);
+                else
+                    out.writeLong(cells[board]);
+            }
+            for (int board = 0; board < boardCount; ++board)
+                out.writeFloat((float) values[board]);
+        } finally {
+            out.close();
+        }
+    }
+
+    //endregion
+
+    //region Static methods
+
+    // Fraction of games that survived the whole horizon with the given policy
+    static double playGames(int size, int horizon, int games, final MovePolicy policy, long seed) {
+        int survived = 0;
+        for (int i = 0; i < games; ++i) {
+            final SeededRandom random = new SeededRandom(Simulator.gameSeed(seed, i));
+            final SeededRandom policyRandom = random.split();
+            final GameState game = new GameState(size, PerfectPlayTable.HAND_COUNT, new Scoring(), random);
+
+            int moves = 0;
+            while (moves < horizon * PerfectPlayTable.HAND_COUNT
+                    && !game.isGameOver() && policy.move(game, policyRandom))
+                moves++;
+
+            if (moves == horizon * PerfectPlayTable.HAND_COUNT)
+                survived++;
+        }
+        return (double) survived / games;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int horizon = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final String path = args.length > 2 ? args[2] : "perfect" + size + "x" + size + ".bin";
+        final int games = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+        final PerfectPlayGenerator generator = new PerfectPlayGenerator(size, horizon);
+        final long millis = generator.generate();
+        generator.write(path);
+        System.out.println("Solved " + generator.getBoardCount() + " boards of " + size + "x" + size
+                + " (up to symmetry) for " + horizon + " hands in " + millis + " ms, written to " + path);
+
+        // The table always plays as if the whole horizon was left, so playing
+        // it can only fall short of the value it gives to the empty board
+        final PerfectPlayTable table = PerfectPlayTable.open(path);
+        System.out.println("Surviving " + horizon + " hands from the empty board:");
+        System.out.println("  perfect play   " + generator.getSurvival());
+        System.out.println("  table policy   " + playGames(size, horizon, games, new PerfectPolicy(table), 1));
+        System.out.println("  greedy policy  " + playGames(size, horizon, games, new GreedyPolicy(size), 1));
+    }
+
+    //endregion
+
+    //region Sub-classes
+
+    // Open addressing map from packed boards to their index, without boxing every one
+    private static class BoardIndex {
+        private final long[] keys;
+        private final int[] indices; // index + 1, or 0 if the slot is empty
+        private final int mask;
+
+        BoardIndex(int capacity) {
+            int slots = 1;
+            while (slots < capacity * 2)
+                slots <<= 1;
+
+            keys = new long[slots];
+            indices = new int[slots];
+            mask = slots - 1;
+        }
+
+        int get(long key) {
+            for (int slot = (int) Zobrist.mix(key) & mask; indices[slot] != 0; slot = (slot + 1) & mask)
+                if (keys[slot] == key)
+                    return indices[slot] - 1;
+
+            return -1;
+        }
+
+        void put(long key, int index) {
+            int slot = (int) Zobrist.mix(key) & mask;
+            while (indices[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            keys[slot] = key;
+            indices[slot] = index + 1;
+        }
+    }
+
+    //endregion
+}
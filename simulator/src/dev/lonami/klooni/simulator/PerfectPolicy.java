@@ -0,0 +1,54 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.PerfectPlayTable;
+
+// Makes the best move according to a perfect play table, so any other policy
+// can be measured against what's possible on the same tiny board.
+public class PerfectPolicy implements MovePolicy {
+
+    //region Members
+
+    private final PerfectPlayTable table;
+
+    //endregion
+
+    //region Constructor
+
+    public PerfectPolicy(final PerfectPlayTable table) {
+        this.table = table;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public boolean move(GameState game, Random random) {
+        if (!table.lookup(game.board, game.hand) || table.getBestSlot() < 0)
+            return false;
+
+        return game.put(table.getBestSlot(), table.getBestX(), table.getBestY());
+    }
+
+    //endregion
+}
@@ -0,0 +1,70 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Shape;
+
+// Picks uniformly at random among every legal move of every shape on the hand
+public class RandomPolicy implements MovePolicy {
+
+    //region Members
+
+    private final int[] anchors;
+
+    // Legal moves found, as slot * cellCount + anchor
+    private final int[] moves;
+
+    //endregion
+
+    //region Constructor
+
+    public RandomPolicy(int boardSize, int handCount) {
+        anchors = new int[boardSize * boardSize];
+        moves = new int[boardSize * boardSize * handCount];
+    }
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public boolean move(GameState game, Random random) {
+        final int cellCount = game.board.size * game.board.size;
+        int count = 0;
+        for (int slot = 0; slot < game.hand.getCount(); ++slot) {
+            final Shape shape = game.hand.get(slot);
+            if (shape == null)
+                continue;
+
+            final int found = game.board.legalPlacements(shape, anchors);
+            for (int i = 0; i < found; ++i)
+                moves[count++] = slot * cellCount + anchors[i];
+        }
+        if (count == 0)
+            return false;
+
+        final int move = moves[random.nextInt(count)];
+        final int anchor = move % cellCount;
+        return game.put(move / cellCount, anchor % game.board.size, anchor / game.board.size);
+    }
+
+    //endregion
+}
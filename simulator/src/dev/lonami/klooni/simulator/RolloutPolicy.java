@@ -0,0 +1,147 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.Random;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.Clock;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Hand;
+import dev.lonami.klooni.engine.RolloutEvaluator;
+import dev.lonami.klooni.engine.Scoring;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
+
+// Picks the move after which greedy playouts score the most points.
+//
+// Only the few moves the greedy policy likes the most are played out,
+// since most of the others are only the same move a cell away, and the
+// points a move scores right away are added to the estimate after it.
+public class RolloutPolicy implements MovePolicy {
+
+    //region Members
+
+    private final RolloutEvaluator evaluator;
+
+    // Reseeded from the random given on every move, so games can be reproduced
+    private final SeededRandom playoutRandom = new SeededRandom(0);
+    private final int[] anchors;
+
+    // Best candidates so far, sorted by their greedy value (descending)
+    private final int[] candidateSlots = new int[CANDIDATES];
+    private final int[] candidateAnchors = new int[CANDIDATES];
+    private final int[] candidateValues = new int[CANDIDATES];
+
+    // Scratch position after putting a candidate
+    private final BitBoard board;
+    private final Hand hand;
+
+    //endregion
+
+    //region Static members
+
+    // Moves that are played out, and how many times each
+    private static final int CANDIDATES = 6;
+    private static final int ROLLOUTS = 32;
+
+    //endregion
+
+    //region Constructor
+
+    public RolloutPolicy(int boardSize, int handCount) {
+        evaluator = new RolloutEvaluator(boardSize, handCount, Clock.SYSTEM, playoutRandom);
+        anchors = new int[boardSize * boardSize];
+        board = new BitBoard(boardSize);
+        hand = new Hand(handCount);
+    }
+
+    //endregion
+
+    //region Private methods
+
+    // Keeps the candidate if it's among the best, returning how many there are now
+    private int offer(int count, int slot, int anchor, int value) {
+        int i = Math.min(count, CANDIDATES - 1);
+        if (i == CANDIDATES - 1 && count == CANDIDATES && candidateValues[i] >= value)
+            return count;
+
+        for (; i > 0 && candidateValues[i - 1] < value; --i) {
+            candidateSlots[i] = candidateSlots[i - 1];
+            candidateAnchors[i] = candidateAnchors[i - 1];
+            candidateValues[i] = candidateValues[i - 1];
+        }
+        candidateSlots[i] = slot;
+        candidateAnchors[i] = anchor;
+        candidateValues[i] = value;
+        return Math.min(count + 1, CANDIDATES);
+    }
+
+    //endregion
+
+    //region Public methods
+
+    @Override
+    public boolean move(GameState game, Random random) {
+        final int size = game.board.size;
+        playoutRandom.setSeed(random.nextLong());
+
+        // Shuffled by a random tie breaker, so equal moves aren't always taken in order
+        int count = 0;
+        for (int slot = 0; slot < game.hand.getCount(); ++slot) {
+            final Shape shape = game.hand.get(slot);
+            if (shape == null)
+                continue;
+
+            final int found = game.board.legalPlacements(shape, anchors);
+            for (int i = 0; i < found; ++i) {
+                final int value = game.board.countCompletedBy(shape, anchors[i] % size, anchors[i] / size);
+                count = offer(count, slot, anchors[i], ((value * 100 + shape.area) << 8) | random.nextInt(256));
+            }
+        }
+
+        int bestSlot = -1, bestAnchor = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < count; ++c) {
+            final Shape shape = game.hand.get(candidateSlots[c]);
+            final int x = candidateAnchors[c] % size, y = candidateAnchors[c] / size;
+
+            board.copyFrom(game.board);
+            board.put(shape, x, y);
+            final int gained = shape.area + Scoring.calculateClearScore(board.findComplete(), size);
+            board.clearComplete();
+
+            for (int i = 0; i < hand.getCount(); ++i)
+                hand.set(i, i == candidateSlots[c] ? null : game.hand.get(i));
+
+            evaluator.reset(board, hand);
+            evaluator.run(ROLLOUTS);
+
+            final float value = gained + evaluator.getEstimate();
+            if (value > bestValue) {
+                bestValue = value;
+                bestSlot = candidateSlots[c];
+                bestAnchor = candidateAnchors[c];
+            }
+        }
+
+        return bestSlot >= 0 && game.put(bestSlot, bestAnchor % size, bestAnchor / size);
+    }
+
+    //endregion
+}
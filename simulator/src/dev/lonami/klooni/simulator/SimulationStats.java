@@ -0,0 +1,170 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.io.PrintStream;
+
+import dev.lonami.klooni.engine.BetScoring;
+import dev.lonami.klooni.engine.HandGenerator;
+
+// Aggregated results of many simulated games. Every worker fills its own
+// instance without any synchronization, and they are merged once done.
+public class SimulationStats {
+
+    //region Members
+
+    long games;
+    long moves;
+    long totalScore;
+    int minScore = Integer.MAX_VALUE;
+    int maxScore;
+
+    // Histograms of the final scores and the game lengths (in moves)
+    final long[] scores = new long[SCORE_BUCKETS];
+    final long[] lengths = new long[LENGTH_BUCKETS];
+
+    // How many moves cleared 0, 1, 2... lines (the last bucket counts anything above)
+    final long[] clears = new long[CLEAR_BUCKETS];
+
+    // What a unit bet would have paid back on casino mode
+    double payout;
+
+    // How the hands were dealt
+    long deals;
+    long dealCandidates;
+    long dealRejections;
+    long dealFallbacks;
+    long dealNanos;
+    long maxDealNanos;
+
+    //endregion
+
+    //region Static members
+
+    static final int SCORE_BUCKET_SIZE = 50;
+    static final int SCORE_BUCKETS = 200;
+
+    static final int LENGTH_BUCKET_SIZE = 10;
+    static final int LENGTH_BUCKETS = 100;
+
+    static final int CLEAR_BUCKETS = 7;
+
+    //endregion
+
+    //region Private methods
+
+    private static void add(long[] histogram, int value, int bucketSize) {
+        histogram[Math.min(value / bucketSize, histogram.length - 1)]++;
+    }
+
+    private static void merge(long[] into, long[] from) {
+        for (int i = 0; i < into.length; ++i)
+            into[i] += from[i];
+    }
+
+    // Approximates the given percentile with the lower bound of its bucket
+    private static int percentile(long[] histogram, long total, double p, int bucketSize) {
+        final long target = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; ++i) {
+            seen += histogram[i];
+            if (seen >= target)
+                return i * bucketSize;
+        }
+        return (histogram.length - 1) * bucketSize;
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public void addMove(int linesCleared) {
+        moves++;
+        clears[Math.min(linesCleared, CLEAR_BUCKETS - 1)]++;
+    }
+
+    public void addGame(int score, int length) {
+        games++;
+        totalScore += score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        add(scores, score, SCORE_BUCKET_SIZE);
+        add(lengths, length, LENGTH_BUCKET_SIZE);
+        payout += BetScoring.getMultiplierForTier(BetScoring.getMultiplierTier(score));
+    }
+
+    public void addDeals(HandGenerator generator) {
+        deals += generator.getDeals();
+        dealCandidates += generator.getCandidates();
+        dealRejections += generator.getRejections();
+        dealFallbacks += generator.getFallbacks();
+        dealNanos += generator.getTotalNanos();
+        maxDealNanos = Math.max(maxDealNanos, generator.getMaxNanos());
+    }
+
+    public void merge(SimulationStats other) {
+        games += other.games;
+        moves += other.moves;
+        totalScore += other.totalScore;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        merge(scores, other.scores);
+        merge(lengths, other.lengths);
+        merge(clears, other.clears);
+        payout += other.payout;
+        deals += other.deals;
+        dealCandidates += other.dealCandidates;
+        dealRejections += other.dealRejections;
+        dealFallbacks += other.dealFallbacks;
+        dealNanos += other.dealNanos;
+        maxDealNanos = Math.max(maxDealNanos, other.maxDealNanos);
+    }
+
+    public void print(PrintStream out) {
+        if (games == 0) {
+            out.println("No games were played");
+            return;
+        }
+
+        out.println("games:   " + games);
+        out.println("score:   avg " + (totalScore / games)
+                + ", min " + minScore + ", max " + maxScore
+                + ", p50 " + percentile(scores, games, 0.50, SCORE_BUCKET_SIZE)
+                + ", p90 " + percentile(scores, games, 0.90, SCORE_BUCKET_SIZE)
+                + ", p99 " + percentile(scores, games, 0.99, SCORE_BUCKET_SIZE));
+        out.println("length:  avg " + (moves / games)
+                + ", p50 " + percentile(lengths, games, 0.50, LENGTH_BUCKET_SIZE)
+                + ", p90 " + percentile(lengths, games, 0.90, LENGTH_BUCKET_SIZE));
+
+        final StringBuilder sb = new StringBuilder("clears: ");
+        for (int i = 0; i < clears.length; ++i) {
+            sb.append(' ').append(i).append(i == clears.length - 1 ? "+" : "")
+                    .append('=').append(Math.round(clears[i] * 10000.0 / moves) / 100.0).append('%');
+        }
+        out.println(sb);
+        out.println("payout:  " + Math.round(payout * 1000.0 / games) / 1000.0 + " per unit bet");
+        if (deals != 0) {
+            out.println("dealing: avg " + dealNanos / deals / 1000 + "us, max " + maxDealNanos / 1000
+                    + "us, " + Math.round(dealCandidates * 100.0 / deals) / 100.0 + " candidates per deal, "
+                    + Math.round(dealRejections * 10000.0 / Math.max(1, dealCandidates)) / 100.0 + "% rejected, "
+                    + dealFallbacks + " fallbacks");
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,190 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import dev.lonami.klooni.engine.Clock;
+import dev.lonami.klooni.engine.DifficultyHandGenerator;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.HandGenerator;
+import dev.lonami.klooni.engine.RandomHandGenerator;
+import dev.lonami.klooni.engine.Scoring;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.SolvableHandGenerator;
+import dev.lonami.klooni.engine.Zobrist;
+
+// Plays many complete games across all the cores with a given move policy,
+// and reports the distribution of the scores, game lengths and line clears.
+//
+// Every game gets its own random generator, derived from the base seed and
+// the game number only, so results don't depend on how work was scheduled.
+//
+// Usage: simulator [games] [random|greedy|rollout] [seed] [threads] [random|solvable|easy|hard]
+public class Simulator {
+
+    //region Members
+
+    private final int games;
+    private final String policy;
+    private final String dealer;
+    private final long seed;
+
+    //endregion
+
+    //region Static members
+
+    private static final int BOARD_SIZE = 10;
+    private static final int HAND_COUNT = 3;
+
+    // Time a hand generator may take to deal, like on the game
+    private static final long DEAL_BUDGET_NANOS = 2000000L;
+    private static final int DEAL_CANDIDATES = 24;
+
+    // Games played by a single task before it stops splitting
+    private static final int GAMES_PER_TASK = 64;
+
+    //endregion
+
+    //region Constructor
+
+    public Simulator(int games, String policy, String dealer, long seed) {
+        this.games = games;
+        this.policy = policy;
+        this.dealer = dealer;
+        this.seed = seed;
+    }
+
+    //endregion
+
+    //region Static methods
+
+    public static MovePolicy createPolicy(String name, int boardSize, int handCount) {
+        if (name.equals("random"))
+            return new RandomPolicy(boardSize, handCount);
+        if (name.equals("greedy"))
+            return new GreedyPolicy(boardSize);
+        if (name.equals("rollout"))
+            return new RolloutPolicy(boardSize, handCount);
+
+        throw new IllegalArgumentException("Unknown policy given: " + name);
+    }
+
+    public static HandGenerator createDealer(String name, int boardSize, int handCount) {
+        if (name.equals("random"))
+            return new RandomHandGenerator(Clock.SYSTEM);
+        if (name.equals("solvable"))
+            return new SolvableHandGenerator(boardSize, handCount, Clock.SYSTEM, DEAL_BUDGET_NANOS);
+
+        final DifficultyHandGenerator result = new DifficultyHandGenerator(
+                boardSize, handCount, DEAL_CANDIDATES, Clock.SYSTEM, DEAL_BUDGET_NANOS);
+        if (name.equals("easy"))
+            result.setDifficulty(0f);
+        else if (name.equals("hard"))
+            result.setDifficulty(1f);
+        else
+            throw new IllegalArgumentException("Unknown dealer given: " + name);
+
+        return result;
+    }
+
+    // Seed of the given game, scrambled so that near games get unrelated streams
+    static long gameSeed(long seed, long game) {
+        return Zobrist.mix(seed + (game + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    public static void main(String[] args) {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final String policy = args.length > 1 ? args[1] : "greedy";
+        final String dealer = args.length > 4 ? args[4] : "random";
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        final int threads = args.length > 3
+                ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Simulating " + games + " games with the " + policy
+                + " policy and " + dealer + " hands (seed " + seed + ") on " + threads + " threads");
+
+        final long start = System.nanoTime();
+        final SimulationStats stats = new Simulator(games, policy, dealer, seed).run(new ForkJoinPool(threads));
+        final double seconds = (System.nanoTime() - start) * 1e-9;
+
+        stats.print(System.out);
+        System.out.println("time:    " + seconds + "s, " + (long) (stats.games / seconds)
+                + " games/s, " + (long) (stats.moves / seconds) + " moves/s");
+    }
+
+    //endregion
+
+    //region Public methods
+
+    public SimulationStats run(ForkJoinPool pool) {
+        return pool.invoke(new SimulateTask(0, games));
+    }
+
+    //endregion
+
+    //region Sub-classes
+
+    // Plays the games in [from, to), splitting in halves while there are many
+    private class SimulateTask extends RecursiveTask<SimulationStats> {
+
+        private final int from, to;
+
+        SimulateTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from > GAMES_PER_TASK) {
+                final int mid = (from + to) >>> 1;
+                final SimulateTask left = new SimulateTask(from, mid);
+                left.fork();
+
+                final SimulationStats stats = new SimulateTask(mid, to).compute();
+                stats.merge(left.join());
+                return stats;
+            }
+
+            final SimulationStats stats = new SimulationStats();
+            final MovePolicy movePolicy = createPolicy(policy, BOARD_SIZE, HAND_COUNT);
+            final HandGenerator generator = createDealer(dealer, BOARD_SIZE, HAND_COUNT);
+            for (int i = from; i < to; ++i) {
+                // The policy gets its own stream, so the shapes dealt on every
+                // game only depend on its seed and not on the moves being made
+                final SeededRandom random = new SeededRandom(gameSeed(seed, i));
+                final SeededRandom policyRandom = random.split();
+                final GameState game = new GameState(BOARD_SIZE, HAND_COUNT, new Scoring(), random);
+                game.setHandGenerator(generator);
+
+                int length = 0;
+                while (!game.isGameOver() && movePolicy.move(game, policyRandom)) {
+                    stats.addMove(game.getLastClearCount());
+                    length++;
+                }
+                stats.addGame(game.scoring.getCurrentScore(), length);
+            }
+            stats.addDeals(generator);
+            return stats;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,128 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import org.junit.Test;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Shape;
+
+import static org.junit.Assert.assertEquals;
+
+// Loads random boards into a batch and checks every query against BitBoard
+// asked one board at a time, including after clearing the lines found
+public class BoardBatchTest {
+
+    private static final int[] SIZES = {1, 5, 7, 8, 10, 16, 20, 32, 33, 63, 64};
+    private static final int CAPACITY = 37;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void agreesWithBitBoard() {
+        for (int size : SIZES)
+            for (long seed = 1; seed <= ROUNDS; ++seed)
+                check(size, seed);
+    }
+
+    private static void check(final int size, final long seed) {
+        final SeededRandom random = new SeededRandom(seed * 31 + size);
+        final BoardBatch batch = new BoardBatch(size, CAPACITY);
+        final BitBoard[] boards = new BitBoard[CAPACITY];
+        for (int k = 0; k < CAPACITY; ++k) {
+            boards[k] = randomBoard(size, random);
+            batch.load(k, boards[k]);
+        }
+
+        // Some shapes put on top, the same way on both
+        for (int k = 0; k < CAPACITY; ++k) {
+            final Shape shape = Shape.get(random.nextInt(Shape.SHAPE_COUNT));
+            final int anchor = boards[k].findPlacement(shape);
+            if (anchor >= 0) {
+                boards[k].put(shape, anchor % size, anchor / size);
+                batch.put(k, shape, anchor % size, anchor / size);
+            }
+        }
+
+        final String where = "size " + size + ", seed " + seed;
+        assertSameCells(where, batch, boards);
+
+        final int[] counts = new int[CAPACITY];
+        final int[] anchors = new int[size * size];
+        final boolean[] fits = new boolean[CAPACITY];
+        for (int s = 0; s < Shape.SHAPE_COUNT; ++s) {
+            final Shape shape = Shape.get(s);
+            batch.countPlacements(shape, counts);
+            batch.fitsAnywhere(shape, fits);
+            for (int k = 0; k < CAPACITY; ++k) {
+                final String which = where + ", board " + k + ", shape " + s;
+                assertEquals(which, boards[k].legalPlacements(shape, anchors), counts[k]);
+                assertEquals(which, boards[k].canPutAnywhere(shape), fits[k]);
+            }
+        }
+
+        final long found = batch.findFullLines();
+        long total = 0;
+        for (int k = 0; k < CAPACITY; ++k) {
+            total += boards[k].findComplete();
+
+            long rows = 0, columns = 0;
+            for (int i = 0; i < size; ++i) {
+                if (boards[k].isRowComplete(i))
+                    rows |= 1L << i;
+                if (boards[k].isColumnComplete(i))
+                    columns |= 1L << i;
+            }
+            assertEquals(where + ", board " + k, rows, batch.getFullRows(k));
+            assertEquals(where + ", board " + k, columns, batch.getFullColumns(k));
+        }
+        assertEquals(where, total, found);
+
+        for (int k = 0; k < CAPACITY; ++k)
+            boards[k].clearComplete();
+        batch.clearFullLines();
+        assertSameCells(where + ", cleared", batch, boards);
+    }
+
+    // Random cells with some full lines, so that clearing has something to do
+    private static BitBoard randomBoard(final int size, final SeededRandom random) {
+        final BitBoard board = new BitBoard(size);
+        final float fill = random.nextFloat();
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                if (random.nextFloat() < fill)
+                    board.set(x, y, 0);
+
+        final int lines = random.nextInt(3);
+        for (int i = 0; i < lines; ++i) {
+            final int line = random.nextInt(size);
+            final boolean row = random.nextBoolean();
+            for (int j = 0; j < size; ++j)
+                board.set(row ? j : line, row ? line : j, 0);
+        }
+        return board;
+    }
+
+    private static void assertSameCells(final String where, final BoardBatch batch, final BitBoard[] boards) {
+        for (int k = 0; k < boards.length; ++k)
+            for (int y = 0; y < batch.size; ++y)
+                for (int x = 0; x < batch.size; ++x)
+                    assertEquals(where + ", board " + k + ", cell " + x + "," + y,
+                            boards[k].isEmpty(x, y), batch.isEmpty(k, x, y));
+    }
+}
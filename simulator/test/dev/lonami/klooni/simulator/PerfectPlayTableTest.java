@@ -0,0 +1,110 @@
+/*
+    1010! Klooni, a free customizable puzzle game for Android and Desktop
+    Copyright (C) 2017-2019  Lonami Exo @ lonami.dev
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package dev.lonami.klooni.simulator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import dev.lonami.klooni.engine.BitBoard;
+import dev.lonami.klooni.engine.GameState;
+import dev.lonami.klooni.engine.Hand;
+import dev.lonami.klooni.engine.PerfectPlayTable;
+import dev.lonami.klooni.engine.Scoring;
+import dev.lonami.klooni.engine.SeededRandom;
+import dev.lonami.klooni.engine.Symmetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Generates a small table and looks up random positions from games under all
+// 8 transforms, checking that they find the value the generator worked out,
+// and that the best move found is legal and worth the same on every one
+public class PerfectPlayTableTest {
+
+    private static final int SIZE = 4;
+    private static final int HORIZON = 3;
+    private static final int GAMES = 30;
+
+    private static PerfectPlayGenerator generator;
+    private static PerfectPlayTable table;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        final File file = File.createTempFile("perfect", ".bin");
+        file.deleteOnExit();
+        generator = new PerfectPlayGenerator(SIZE, HORIZON);
+        generator.generate();
+        generator.write(file.getPath());
+        table = PerfectPlayTable.open(file.getPath());
+    }
+
+    @Test
+    public void emptyBoardHasTheGeneratedSurvival() {
+        assertEquals(generator.getBoardCount(), table.getBoardCount());
+        assertTrue(table.lookup(new BitBoard(SIZE), null));
+        assertEquals((float) generator.getSurvival(), table.getSurvival(), 0.0);
+    }
+
+    @Test
+    public void lookupsRoundTripThroughSymmetry() {
+        final Symmetry symmetry = new Symmetry(SIZE);
+        final BitBoard transformed = new BitBoard(SIZE);
+        final Hand transformedHand = new Hand(PerfectPlayTable.HAND_COUNT);
+        for (int i = 0; i < GAMES; ++i) {
+            final SeededRandom random = new SeededRandom(i + 1);
+            final GameState game = new GameState(SIZE, PerfectPlayTable.HAND_COUNT, new Scoring(), random);
+            for (int move = 0; !game.isGameOver(); ++move) {
+                final String where = "game " + i + ", move " + move;
+                final float value = (float) generator.getValue(game.board);
+                assertTrue(where, value >= 0f);
+
+                assertTrue(where, table.lookup(game.board, game.hand));
+                final float survival = table.getSurvival();
+                for (int t = 0; t < Symmetry.COUNT; ++t) {
+                    final String which = where + ", transform " + t;
+                    symmetry.transform(game.board, transformed, t);
+                    for (int slot = 0; slot < transformedHand.getCount(); ++slot)
+                        transformedHand.set(slot, game.hand.get(slot) == null
+                                ? null : Symmetry.transform(game.hand.get(slot), t));
+
+                    assertEquals(which, value, table.getValue(transformed), 0.0);
+                    assertTrue(which, table.lookup(transformed, transformedHand));
+                    assertEquals(which, survival, table.getSurvival(), 0.0);
+                    assertTrue(which, table.getBestSlot() >= 0);
+                    assertTrue(which, transformed.canPut(transformedHand.get(table.getBestSlot()),
+                            table.getBestX(), table.getBestY()));
+                }
+
+                // Random moves, to reach boards perfect play would avoid
+                final int slot = random.nextInt(PerfectPlayTable.HAND_COUNT);
+                if (game.hand.get(slot) != null) {
+                    final int anchor = game.board.findPlacement(game.hand.get(slot));
+                    if (anchor >= 0) {
+                        game.put(slot, anchor % SIZE, anchor / SIZE);
+                        continue;
+                    }
+                }
+                table.lookup(game.board, game.hand);
+                game.put(table.getBestSlot(), table.getBestX(), table.getBestY());
+            }
+        }
+    }
+}